@@ -101,6 +101,13 @@ import org.apache.commons.lang3.CharEncoding;
 @SuppressWarnings("PMD.ExcessiveImports")
 public final class Agents {
 
+    /**
+     * Build hosts, new daemons go to the best of them.
+     */
+    private static final Array<String> HOSTS = new Array<String>(
+        "b1.rultor.com"
+    );
+
     /**
      * Github client.
      */
@@ -124,32 +131,64 @@ public final class Agents {
     /**
      * Create super agent, starter.
      * @return The starter
+     * @throws IOException If fails
      */
-    public SuperAgent starter() {
+    public SuperAgent starter() throws IOException {
         return new SuperAgent.Iterative(
             new Array<SuperAgent>(
                 new StartsTalks(this.github),
-                new IndexesRequests()
+                this.indexer()
             )
         );
     }
 
+    /**
+     * Create super agent, indexer.
+     *
+     * <p>It is a starter without {@link StartsTalks}, for nodes that
+     * are not leaders, since only one node must pick up new talks
+     * from Github.
+     *
+     * @return The indexer
+     * @throws IOException If fails
+     * @since 2.0
+     */
+    public SuperAgent indexer() throws IOException {
+        return new IndexesRequests(this.sttc.counters().get("rt-index"));
+    }
+
+    /**
+     * Create super agent, prober.
+     *
+     * <p>It checks running daemons, one SSH command per build host,
+     * and ends those that are finished.
+     *
+     * @return The prober
+     * @since 2.0
+     */
+    public SuperAgent prober() {
+        return new EndsDaemon();
+    }
+
     /**
      * Create super agent, closer.
      * @return The closer
      * @throws IOException If fails
      */
     public SuperAgent closer() throws IOException {
-        return new SuperAgent.Iterative(
-            new Array<SuperAgent>(
-                new UnlocksRepo(this.sttc.locks(), this.github),
-                new DeactivatesTalks()
-            )
+        return new Sweep(
+            new UnlocksRepo(this.sttc.locks(), this.github),
+            new DeactivatesTalks()
         );
     }
 
     /**
      * Create it for a talk.
+     *
+     * <p>Agents with side effects outside of the talk, like SSH commands
+     * and posts to Github, Twitter or S3, are wrapped into
+     * {@link Flushes}, so that their results are recorded right away.
+     *
      * @param talk Talk itself
      * @param profile Profile
      * @return The agent
@@ -197,46 +236,50 @@ public final class Agents {
         );
         return new Agent.Iterative(
             new Array<Agent>(
-                new Understands(this.github, question),
+                new Flushes(new Understands(this.github, question)),
                 new StartsRequest(profile),
                 new RegistersShell(
                     profile,
+                    Agents.HOSTS,
                     // @checkstyle MagicNumber (1 line)
-                    "b1.rultor.com", 22,
+                    22,
                     "rultor",
                     IOUtils.toString(
                         this.getClass().getResourceAsStream("rultor.key"),
                         CharEncoding.UTF_8
                     )
                 ),
-                new StartsDaemon(profile),
-                new KillsDaemon(TimeUnit.HOURS.toMinutes(2L)),
-                new StopsDaemon(),
-                new EndsDaemon(),
+                new Flushes(new StartsDaemon(profile)),
+                new Flushes(new KillsDaemon(TimeUnit.HOURS.toMinutes(2L))),
+                new Flushes(new StopsDaemon()),
                 new EndsRequest(),
-                new Tweets(
-                    this.github,
-                    new OAuthTwitter(
-                        Manifests.read("Rultor-TwitterKey"),
-                        Manifests.read("Rultor-TwitterSecret"),
-                        Manifests.read("Rultor-TwitterToken"),
-                        Manifests.read("Rultor-TwitterTokenSecret")
+                new Flushes(
+                    new Tweets(
+                        this.github,
+                        new OAuthTwitter(
+                            Manifests.read("Rultor-TwitterKey"),
+                            Manifests.read("Rultor-TwitterSecret"),
+                            Manifests.read("Rultor-TwitterToken"),
+                            Manifests.read("Rultor-TwitterTokenSecret")
+                        )
                     )
                 ),
-                new CommentsTag(this.github),
-                new ReleaseBinaries(this.github, profile),
-                new Reports(this.github),
+                new Flushes(new CommentsTag(this.github)),
+                new Flushes(new ReleaseBinaries(this.github, profile)),
+                new Flushes(new Reports(this.github)),
                 new RemovesShell(),
-                new ArchivesDaemon(
-                    new ReRegion(
-                        new Region.Simple(
-                            Manifests.read("Rultor-S3Key"),
-                            Manifests.read("Rultor-S3Secret")
-                        )
-                    ).bucket(Manifests.read("Rultor-S3Bucket"))
+                new Flushes(
+                    new ArchivesDaemon(
+                        new ReRegion(
+                            new Region.Simple(
+                                Manifests.read("Rultor-S3Key"),
+                                Manifests.read("Rultor-S3Secret")
+                            )
+                        ).bucket(Manifests.read("Rultor-S3Bucket"))
+                    )
                 ),
                 new Publishes(profile),
-                new Stars(this.github)
+                new Flushes(new Stars(this.github))
             )
         );
     }
@@ -32,6 +32,7 @@ package com.rultor.agents;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.log.Logger;
 import com.jcabi.xml.XML;
+import com.rultor.spi.Agent;
 import com.rultor.spi.SuperAgent;
 import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
@@ -43,6 +44,9 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * Deactivates empty talks.
  *
+ * <p>It works either as a super agent, with all active talks,
+ * or as an agent, with one talk, for example inside a {@link Sweep}.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.3
@@ -50,7 +54,7 @@ import org.apache.commons.lang3.StringUtils;
 @Immutable
 @ToString
 @EqualsAndHashCode
-public final class DeactivatesTalks implements SuperAgent {
+public final class DeactivatesTalks implements SuperAgent, Agent {
 
     /**
      * Which talks should be deactivated.
@@ -63,11 +67,16 @@ public final class DeactivatesTalks implements SuperAgent {
     @Override
     public void execute(final Talks talks) throws IOException {
         for (final Talk talk : talks.active()) {
-            final XML xml = talk.read();
-            if (!xml.nodes(DeactivatesTalks.XPATH).isEmpty()) {
-                talk.active(false);
-                Logger.info(this, "%s deactivated", talk.name());
-            }
+            this.execute(talk);
+        }
+    }
+
+    @Override
+    public void execute(final Talk talk) throws IOException {
+        final XML xml = talk.read();
+        if (!xml.nodes(DeactivatesTalks.XPATH).isEmpty()) {
+            talk.active(false);
+            Logger.info(this, "%s deactivated", talk.name());
         }
     }
 
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents;
+
+import com.google.common.collect.Iterables;
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import com.rultor.spi.Talk;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.w3c.dom.Node;
+import org.xembly.Directive;
+import org.xembly.Directives;
+import org.xembly.ImpossibleModificationException;
+import org.xembly.Xembler;
+
+/**
+ * Draft of a talk, modified in memory and saved at once.
+ *
+ * <p>The original talk is read (parsed, upgraded and validated) only
+ * once, on the first call to {@link #read()}. All modifications are
+ * applied to the in-memory copy and replayed against the original talk,
+ * in one write, when {@link #save()} is called. Every agent in a chain
+ * navigates by absolute XPath, that's why the replay gives exactly
+ * the same document as the in-memory copy.
+ *
+ * <p>If the original talk reports its version in the "version" attribute
+ * of the root element, the replay ends with a directive that sets
+ * the version back, so that the original talk can reject modifications
+ * made for another version of it. Once saved, successfully or not,
+ * the draft is read again from the original talk.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "origin")
+@EqualsAndHashCode(of = "origin")
+public final class Draft implements Talk {
+
+    /**
+     * Original talk.
+     */
+    private final transient Talk origin;
+
+    /**
+     * Current XML of the draft, or NULL if not read yet.
+     */
+    private final transient AtomicReference<XML> xml =
+        new AtomicReference<XML>();
+
+    /**
+     * Directives applied, but not saved yet.
+     */
+    private final transient Collection<Directive> dirs =
+        new LinkedList<Directive>();
+
+    /**
+     * Ctor.
+     * @param talk Original talk
+     */
+    public Draft(final Talk talk) {
+        this.origin = talk;
+    }
+
+    @Override
+    public Long number() throws IOException {
+        return this.origin.number();
+    }
+
+    @Override
+    public String name() throws IOException {
+        return this.origin.name();
+    }
+
+    @Override
+    public Date updated() throws IOException {
+        return this.origin.updated();
+    }
+
+    @Override
+    public XML read() throws IOException {
+        synchronized (this.dirs) {
+            if (this.xml.get() == null) {
+                this.xml.set(this.origin.read());
+            }
+            return this.xml.get();
+        }
+    }
+
+    @Override
+    public void modify(final Iterable<Directive> batch) throws IOException {
+        if (!Iterables.isEmpty(batch)) {
+            synchronized (this.dirs) {
+                final XML before = this.read();
+                final Node node = before.node();
+                try {
+                    new Xembler(batch).apply(node);
+                } catch (final ImpossibleModificationException ex) {
+                    throw new IllegalStateException(
+                        String.format(
+                            "failed to apply %s to %s",
+                            batch.toString(), before
+                        ),
+                        ex
+                    );
+                }
+                this.xml.set(new XMLDocument(node));
+                Iterables.addAll(this.dirs, batch);
+            }
+        }
+    }
+
+    @Override
+    public void active(final boolean yes) throws IOException {
+        this.origin.active(yes);
+    }
+
+    /**
+     * Save all modifications to the original talk, in one write.
+     * @throws IOException If fails, for example if the original talk
+     *  is at another version already
+     */
+    public void save() throws IOException {
+        synchronized (this.dirs) {
+            if (!this.dirs.isEmpty()) {
+                final Collection<Directive> all =
+                    new ArrayList<Directive>(this.dirs);
+                for (final String version
+                    : this.xml.get().xpath("/talk/@version")) {
+                    Iterables.addAll(
+                        all, new Directives().xpath("/talk")
+                            .attr("version", version)
+                    );
+                }
+                try {
+                    this.origin.modify(all);
+                } finally {
+                    this.dirs.clear();
+                    this.xml.set(null);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents;
+
+import com.jcabi.aspects.Immutable;
+import com.rultor.spi.Agent;
+import com.rultor.spi.Talk;
+import java.io.Flushable;
+import java.io.IOException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Agent with side effects outside of the talk, which are recorded
+ * in the talk right away.
+ *
+ * <p>When the talk keeps its changes in memory, for example in a batch
+ * of talks, it is flushed before the agent, so that a conflict with
+ * another writer is found before the side effect happens, for example
+ * before a daemon is started or a comment is posted. Then it is flushed
+ * again after the agent, so that the record of the side effect doesn't
+ * wait for the end of the tick. If the second flush fails, the agent
+ * runs again and repeats the side effect, which means that side effects
+ * happen at least once, not exactly once.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "origin")
+public final class Flushes implements Agent {
+
+    /**
+     * Original agent.
+     */
+    private final transient Agent origin;
+
+    /**
+     * Ctor.
+     * @param agent Original agent
+     */
+    public Flushes(final Agent agent) {
+        this.origin = agent;
+    }
+
+    @Override
+    public void execute(final Talk talk) throws IOException {
+        Flushes.flush(talk);
+        this.origin.execute(talk);
+        Flushes.flush(talk);
+    }
+
+    /**
+     * Flush the talk, if it keeps changes in memory.
+     * @param talk The talk
+     * @throws IOException If fails
+     */
+    private static void flush(final Talk talk) throws IOException {
+        if (talk instanceof Flushable) {
+            Flushable.class.cast(talk).flush();
+        }
+    }
+
+}
@@ -29,32 +29,72 @@
  */
 package com.rultor.agents;
 
+import co.stateful.Counter;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.xml.XML;
 import com.rultor.spi.SuperAgent;
 import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
 import java.io.IOException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.xembly.Directives;
 
 /**
  * Adds index to all the requests received.
  *
+ * <p>Indexes are taken from a persistent counter, and only requests
+ * without an index are touched. When the counter is used for the first
+ * time it is moved beyond the biggest index among all active talks.
+ * Anyway, a new index is never smaller than indexes already present
+ * in the talk.
+ *
  * @author Krzysztof Krason (Krzysztof.Krason@gmail.com)
  * @version $Id$
  */
-@SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "counter")
 public final class IndexesRequests implements SuperAgent {
+
+    /**
+     * Counter of indexes.
+     */
+    private final transient Counter counter;
+
+    /**
+     * Ctor.
+     * @param cnt Counter of indexes
+     * @since 2.0
+     */
+    public IndexesRequests(final Counter cnt) {
+        this.counter = cnt;
+    }
+
     @Override
     public void execute(final Talks talks) throws IOException {
-        int idx = this.index(talks);
         for (final Talk talk : talks.active()) {
-            idx += 1;
+            final XML xml = talk.read();
+            if (xml.nodes("/talk/request[not(@index)]").isEmpty()) {
+                continue;
+            }
+            long idx = this.counter.incrementAndGet(1L);
+            if (idx == 1L) {
+                idx = this.counter.incrementAndGet(
+                    (long) IndexesRequests.index(talks)
+                );
+            }
+            final int local = IndexesRequests.index(xml);
+            if (idx <= local) {
+                idx = this.counter.incrementAndGet(local - idx + 1L);
+            }
             talk.modify(
                 new Directives()
-                    .xpath("/talk/request")
-                    .attr("index", Integer.toString(idx))
+                    .xpath("/talk/request[not(@index)]")
+                    .attr("index", Long.toString(idx))
             );
         }
     }
@@ -65,10 +105,10 @@ public final class IndexesRequests implements SuperAgent {
      * @return The maximal index value
      * @throws IOException if the content of one {@link Talk} object can't be read
      */
-    private int index(final Talks talks) throws IOException {
+    private static int index(final Talks talks) throws IOException {
         int index = 0;
         for (final Talk talk : talks.active()) {
-            final int idx = this.index(talk);
+            final int idx = IndexesRequests.index(talk.read());
             if (idx > index) {
                 index = idx;
             }
@@ -77,16 +117,13 @@ public final class IndexesRequests implements SuperAgent {
     }
 
     /**
-     * Calculates maximal (existing) index value of a {@link Talk} object.
-     * @param talk The {@link Talk} object
+     * Calculates maximal (existing) index value of a talk.
+     * @param xml XML of the talk
      * @return The maximal index value
-     * @throws IOException if the content of the {@link Talk} object can't be
-     *  read
      */
-    private int index(final Talk talk) throws IOException {
+    private static int index(final XML xml) {
         final Iterable<Integer> indexes = Iterables.transform(
-                talk.read()
-                .xpath("/talk/archive/log/@index|/talk/request/@index"),
+            xml.xpath("/talk/archive/log/@index|/talk/request/@index"),
             new Function<String, Integer>() {
                 @Override
                 public Integer apply(final String input) {
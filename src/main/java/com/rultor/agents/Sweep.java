@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.immutable.Array;
+import com.jcabi.log.Logger;
+import com.rultor.spi.Agent;
+import com.rultor.spi.SuperAgent;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import java.io.IOException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Super agent that runs a few talk agents in one pass over all
+ * active talks.
+ *
+ * <p>All agents work with every active talk, one after another. The talks
+ * are expected to come from a batch, which keeps them in memory and saves
+ * all their modifications in one write, see
+ * {@code com.rultor.dynamo.BtTalks}. A talk that fails is logged and
+ * skipped, the others are still swept.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "agents")
+public final class Sweep implements SuperAgent {
+
+    /**
+     * Agents to run for each talk.
+     */
+    private final transient Array<Agent> agents;
+
+    /**
+     * Ctor.
+     * @param list Agents to run for each talk
+     */
+    public Sweep(final Agent... list) {
+        this.agents = new Array<Agent>(list);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public void execute(final Talks talks) throws IOException {
+        for (final Talk talk : talks.active()) {
+            try {
+                for (final Agent agent : this.agents) {
+                    agent.execute(talk);
+                }
+                // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                Logger.warn(
+                    this, "talk %s failed to sweep: %[exception]s",
+                    talk.name(), ex
+                );
+            }
+        }
+    }
+
+}
@@ -40,9 +40,6 @@ import com.jcabi.xml.XML;
 import com.rultor.Time;
 import com.rultor.agents.AbstractAgent;
 import com.rultor.agents.shells.TalkShells;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Date;
@@ -50,8 +47,8 @@ import java.util.logging.Level;
 import javax.ws.rs.core.MediaType;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.CharEncoding;
 import org.xembly.Directive;
 import org.xembly.Directives;
@@ -59,6 +56,16 @@ import org.xembly.Directives;
 /**
  * Marks the daemon as done.
  *
+ * <p>The log is compressed with gzip on the build host, before it
+ * travels through SSH, and is stored in S3 compressed. Lines are counted
+ * by the same pipe, into a file next to the log, so that the log
+ * is never read twice. The log is uploaded by parts while it's being
+ * transferred, without a temporary file, see {@link S3Output}, through
+ * a dedicated SSH session, since parts may take a while to upload, see
+ * {@link TalkShells#dedicated()}. When
+ * anything fails on the way, including any command in the pipe,
+ * the upload is aborted.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -89,29 +96,49 @@ public final class ArchivesDaemon extends AbstractAgent {
     @Override
     public Iterable<Directive> process(final XML xml) throws IOException {
         final Shell shell = new TalkShells(xml).get();
-        final File file = File.createTempFile("rultor", ".log");
         final String dir = xml.xpath("/talk/daemon/dir/text()").get(0);
-        new Shell.Safe(shell).exec(
-            Joiner.on("; ").join(
-                String.format("dir=%s", SSH.escape(dir)),
-                "if [ -r \"${dir}/stdout\" ]",
-                // @checkstyle LineLength (1 line)
-                "then cat \"${dir}/stdout\" | iconv -f utf-8 -t utf-8 -c | col -b",
-                "else echo 'stdout not found, internal error'",
-                "fi"
-            ),
-            new NullInputStream(0L),
-            new FileOutputStream(file),
-            Logger.stream(Level.WARNING, this)
+        final String hash = xml.xpath("/talk/daemon/@id").get(0);
+        final String key = String.format("%tY/%1$tm/%s.txt", new Date(), hash);
+        final S3Output output = new S3Output(
+            this.bucket, key, ArchivesDaemon.meta()
+        );
+        boolean done = false;
+        try {
+            new Shell.Safe(new TalkShells(xml).dedicated()).exec(
+                Joiner.on("; ").join(
+                    "set -o pipefail",
+                    String.format("dir=%s", SSH.escape(dir)),
+                    "{ if [ -r \"${dir}/stdout\" ]",
+                    // @checkstyle LineLength (1 line)
+                    "then cat \"${dir}/stdout\" | iconv -f utf-8 -t utf-8 -c | col -b",
+                    "else echo 'stdout not found, internal error'",
+                    // @checkstyle LineLength (1 line)
+                    "fi; } | awk -v f=\"${dir}/lines\" '{print} END {print NR > f}' | gzip -c"
+                ),
+                new NullInputStream(0L),
+                new CloseShieldOutputStream(output),
+                Logger.stream(Level.WARNING, this)
+            );
+            output.close();
+            done = true;
+        } finally {
+            if (!done) {
+                output.abort();
+            }
+        }
+        final int lines = Integer.parseInt(
+            new Shell.Plain(new Shell.Safe(shell)).exec(
+                String.format("cat %s/lines", SSH.escape(dir))
+            ).trim()
         );
         new Shell.Empty(new Shell.Safe(shell)).exec(
             String.format("sudo rm -rf %1$s || rm -rf %s", SSH.escape(dir))
         );
-        final String hash = xml.xpath("/talk/daemon/@id").get(0);
-        final URI uri = this.upload(file, hash);
-        final String title = this.title(xml, file);
+        final URI uri = URI.create(
+            String.format("s3://%s/%s", this.bucket.name(), key)
+        );
+        final String title = ArchivesDaemon.title(xml, lines);
         Logger.info(this, "daemon archived into %s: %s", uri, title);
-        FileUtils.deleteQuietly(file);
         return new Directives().xpath("/talk/daemon").remove()
             .xpath("/talk").addIf("archive")
             .add("log").attr("id", hash)
@@ -120,30 +147,27 @@ public final class ArchivesDaemon extends AbstractAgent {
     }
 
     /**
-     * Upload file to S3.
-     * @param file The file
-     * @param hash Hash
-     * @return S3 URI
-     * @throws IOException If fails
+     * Metadata of the gzipped log in S3.
+     * @return Metadata
      */
-    private URI upload(final File file, final String hash) throws IOException {
+    private static ObjectMetadata meta() {
         final ObjectMetadata meta = new ObjectMetadata();
-        meta.setContentType(MediaType.TEXT_PLAIN);
-        meta.setContentEncoding(CharEncoding.UTF_8);
-        meta.setContentLength(file.length());
-        final String key = String.format("%tY/%1$tm/%s.txt", new Date(), hash);
-        this.bucket.ocket(key).write(new FileInputStream(file), meta);
-        return URI.create(String.format("s3://%s/%s", this.bucket.name(), key));
+        meta.setContentType(
+            String.format(
+                "%s; charset=%s", MediaType.TEXT_PLAIN, CharEncoding.UTF_8
+            )
+        );
+        meta.setContentEncoding(Tail.GZIP);
+        return meta;
     }
 
     /**
      * Make a title.
      * @param xml XML
-     * @param file File with stdout
+     * @param lines Total lines in stdout
      * @return Title
-     * @throws IOException If fails
      */
-    private String title(final XML xml, final File file) throws IOException {
+    private static String title(final XML xml, final int lines) {
         final int code = Integer.parseInt(
             xml.xpath("/talk/daemon/code/text()").get(0)
         );
@@ -160,7 +184,7 @@ public final class ArchivesDaemon extends AbstractAgent {
             status,
             new Time(xml.xpath("/talk/daemon/ended/text()").get(0)).msec()
             - new Time(xml.xpath("/talk/daemon/started/text()").get(0)).msec(),
-            FileUtils.readLines(file).size()
+            lines
         );
     }
 
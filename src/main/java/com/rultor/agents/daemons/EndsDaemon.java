@@ -29,12 +29,15 @@
  */
 package com.rultor.agents.daemons;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.Hashing;
 import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
 import com.jcabi.ssh.SSH;
 import com.jcabi.ssh.Shell;
@@ -42,7 +45,16 @@ import com.jcabi.xml.XML;
 import com.rultor.Time;
 import com.rultor.agents.AbstractAgent;
 import com.rultor.agents.shells.TalkShells;
+import com.rultor.spi.SuperAgent;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.lang3.StringUtils;
@@ -52,6 +64,12 @@ import org.xembly.Directives;
 /**
  * Marks the daemon as done.
  *
+ * <p>As a super agent, it checks all running daemons of one build host
+ * in one SSH command, instead of one command per daemon, and ends
+ * those that are not running any more. Daemons are grouped by login,
+ * host, port and SSH key, since profiles may log in to the same host
+ * with different keys. As an agent, it does the same for one talk.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -62,7 +80,7 @@ import org.xembly.Directives;
 @Immutable
 @ToString
 @EqualsAndHashCode(callSuper = false)
-public final class EndsDaemon extends AbstractAgent {
+public final class EndsDaemon extends AbstractAgent implements SuperAgent {
 
     /**
      * Prefix for log highlights.
@@ -74,37 +92,128 @@ public final class EndsDaemon extends AbstractAgent {
      */
     private static final String SHELL_JOINER = " && ";
 
+    /**
+     * Running daemons.
+     */
+    private static final String XPATH =
+        "/talk[shell]/daemon[started and not(code) and not(ended)]";
+
     /**
      * Ctor.
      */
     public EndsDaemon() {
-        super("/talk/daemon[started and not(code) and not(ended)]");
+        super(EndsDaemon.XPATH);
+    }
+
+    @Override
+    public void execute(final Talks talks) throws IOException {
+        final Map<String, Map<String, Talk>> hosts =
+            new TreeMap<String, Map<String, Talk>>();
+        for (final Talk talk : talks.active()) {
+            final XML xml = talk.read();
+            if (xml.nodes(EndsDaemon.XPATH).isEmpty()) {
+                continue;
+            }
+            final String host = Joiner.on(':').join(
+                xml.xpath("/talk/shell/login/text()").get(0),
+                xml.xpath("/talk/shell/host/text()").get(0),
+                xml.xpath("/talk/shell/port/text()").get(0),
+                Hashing.sha256().hashString(
+                    xml.xpath("/talk/shell/key/text()").get(0),
+                    Charsets.UTF_8
+                ).toString().substring(0, Tv.EIGHT)
+            );
+            if (!hosts.containsKey(host)) {
+                hosts.put(host, new TreeMap<String, Talk>());
+            }
+            hosts.get(host).put(
+                xml.xpath("/talk/daemon/dir/text()").get(0), talk
+            );
+        }
+        for (final Map.Entry<String, Map<String, Talk>> host
+            : hosts.entrySet()) {
+            try {
+                this.probe(host.getValue());
+            } catch (final IOException ex) {
+                Logger.warn(
+                    this, "failed to probe daemons at %s: %s",
+                    host.getKey(), ex.getLocalizedMessage()
+                );
+            }
+        }
     }
 
     @Override
     public Iterable<Directive> process(final XML xml) throws IOException {
         final Shell shell = new TalkShells(xml).get();
         final String dir = xml.xpath("/talk/daemon/dir/text()").get(0);
-        final int exit = new Shell.Empty(shell).exec(
-            Joiner.on(EndsDaemon.SHELL_JOINER).join(
-                String.format("dir=%s ", SSH.escape(dir)),
-                "if [ ! -e \"${dir}/pid\" ]; then exit 1; fi",
-                "pid=$(cat \"${dir}/pid\")",
-                "ps -p \"${pid}\" >/dev/null"
-            )
-        );
         final Directives dirs = new Directives();
-        if (exit == 0) {
+        if (EndsDaemon.alive(shell, Collections.singleton(dir)).isEmpty()) {
+            dirs.append(this.end(shell, dir));
+        } else {
             Logger.info(
                 this, "the daemon is still running in %s (%s)",
                 dir, xml.xpath("/talk/@name").get(0)
             );
-        } else {
-            dirs.append(this.end(shell, dir));
         }
         return dirs;
     }
 
+    /**
+     * Probe daemons of one host and end those that are not running.
+     * @param daemons Talks with running daemons, by their dirs
+     * @throws IOException If fails
+     */
+    private void probe(final Map<String, Talk> daemons) throws IOException {
+        final Shell shell = new TalkShells(
+            daemons.values().iterator().next().read()
+        ).get();
+        final Collection<String> alive = EndsDaemon.alive(
+            shell, daemons.keySet()
+        );
+        Logger.info(
+            this, "%d daemon(s) of %d still running at %s",
+            alive.size(), daemons.size(), shell
+        );
+        for (final Map.Entry<String, Talk> daemon : daemons.entrySet()) {
+            if (!alive.contains(daemon.getKey())) {
+                daemon.getValue().modify(this.end(shell, daemon.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Find out which daemons are still running, in one command.
+     * @param shell Shell
+     * @param dirs Dirs of daemons
+     * @return Dirs of daemons which are still running
+     * @throws IOException If fails
+     */
+    private static Collection<String> alive(final Shell shell,
+        final Collection<String> dirs) throws IOException {
+        final Collection<String> escaped = new ArrayList<String>(dirs.size());
+        for (final String dir : dirs) {
+            escaped.add(SSH.escape(dir));
+        }
+        return new HashSet<String>(
+            Splitter.on('\n').omitEmptyStrings().splitToList(
+                new Shell.Plain(new Shell.Safe(shell)).exec(
+                    Joiner.on("; ").join(
+                        String.format(
+                            "for dir in %s", Joiner.on(' ').join(escaped)
+                        ),
+                        "do if [ -e \"${dir}/pid\" ]",
+                        "then pid=$(cat \"${dir}/pid\")",
+                        // @checkstyle LineLength (1 line)
+                        "if ps -p \"${pid}\" >/dev/null; then echo \"${dir}\"; fi",
+                        "fi",
+                        "done"
+                    )
+                )
+            )
+        );
+    }
+
     /**
      * End this daemon.
      * @param shell Shell
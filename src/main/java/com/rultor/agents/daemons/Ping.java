@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.daemons;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.manifests.Manifests;
+import com.jcabi.xml.XML;
+import java.net.URI;
+import java.security.MessageDigest;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Ping of a daemon, which it sends to Rultor when it's finished.
+ *
+ * <p>The URI is signed with a token, made of the security key, the
+ * number of the talk and the hash of the daemon, so that nobody else
+ * can send a ping instead of the daemon. The URI starts with the address
+ * of this Rultor installation, taken from "Rultor-Url" in the manifest,
+ * which is expected to be HTTPS, since the token travels in the URI.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = { "number", "hash" })
+public final class Ping {
+
+    /**
+     * Length of the token.
+     */
+    private static final int LENGTH = 16;
+
+    /**
+     * Number of the talk.
+     */
+    private final transient long number;
+
+    /**
+     * Hash of the daemon.
+     */
+    private final transient String hash;
+
+    /**
+     * Ctor.
+     * @param talk Talk
+     * @param hsh Hash of the daemon
+     */
+    public Ping(final XML talk, final String hsh) {
+        this(Long.parseLong(talk.xpath("/talk/@number").get(0)), hsh);
+    }
+
+    /**
+     * Ctor.
+     * @param num Number of the talk
+     * @param hsh Hash of the daemon
+     */
+    public Ping(final long num, final String hsh) {
+        this.number = num;
+        this.hash = hsh;
+    }
+
+    /**
+     * Get its URI.
+     * @return URI
+     */
+    public URI uri() {
+        return URI.create(
+            String.format(
+                "%s/ping/%d-%s?t=%s",
+                StringUtils.stripEnd(Manifests.read("Rultor-Url"), "/"),
+                this.number, this.hash, this.token()
+            )
+        );
+    }
+
+    /**
+     * Is it a valid token of this ping?
+     *
+     * <p>Tokens are compared in constant time, so that the time of
+     * the comparison doesn't tell how much of the token is right.
+     *
+     * @param token Token received
+     * @return TRUE if valid
+     */
+    public boolean valid(final String token) {
+        return MessageDigest.isEqual(
+            this.token().getBytes(Charsets.UTF_8),
+            token.getBytes(Charsets.UTF_8)
+        );
+    }
+
+    /**
+     * Make a token.
+     * @return Token
+     */
+    private String token() {
+        return Hashing.sha256().hashString(
+            String.format(
+                "%s:%d-%s", Manifests.read("Rultor-SecurityKey"),
+                this.number, this.hash
+            ),
+            Charsets.UTF_8
+        ).toString().substring(0, Ping.LENGTH);
+    }
+
+}
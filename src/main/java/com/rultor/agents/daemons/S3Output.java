@@ -0,0 +1,361 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.daemons;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
+import com.jcabi.s3.Bucket;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.ToString;
+
+/**
+ * Output stream into S3 object, uploaded by parts.
+ *
+ * <p>Bytes are collected in memory until there are enough of them
+ * for a part, which is then uploaded in a background thread, while
+ * the stream is still being written. Every part is retried on its own.
+ * No more than a few parts are kept in memory at a time, the writer
+ * waits when they are not uploaded yet. An object smaller than one part
+ * is uploaded by a plain PUT, when the stream is closed. If the upload
+ * can't be completed, it is aborted, so that S3 doesn't keep its parts.
+ * One AWS client is made for the whole multipart upload, and shut down
+ * when the stream is closed or aborted.
+ *
+ * <p>The class is not thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "bucket", "key" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class S3Output extends OutputStream {
+
+    /**
+     * Size of one part, in bytes (S3 requires at least 5Mb).
+     */
+    static final int PART = Tv.TEN * Tv.MILLION;
+
+    /**
+     * How many parts to upload in parallel.
+     */
+    private static final int THREADS = Tv.FOUR;
+
+    /**
+     * How many times to try to upload a part.
+     */
+    private static final int ATTEMPTS = Tv.THREE;
+
+    /**
+     * Bucket.
+     */
+    private final transient Bucket bucket;
+
+    /**
+     * Object key.
+     */
+    private final transient String key;
+
+    /**
+     * Metadata of the object.
+     */
+    private final transient ObjectMetadata meta;
+
+    /**
+     * Bytes of the current part.
+     */
+    private final transient ByteArrayOutputStream buffer =
+        new ByteArrayOutputStream();
+
+    /**
+     * Parts being uploaded.
+     */
+    private final transient List<Future<PartETag>> parts =
+        new ArrayList<Future<PartETag>>(0);
+
+    /**
+     * Uploaders.
+     */
+    private final transient ExecutorService pool =
+        Executors.newFixedThreadPool(
+            S3Output.THREADS, new VerboseThreads("s3-output")
+        );
+
+    /**
+     * Multipart upload ID or NULL if not started yet.
+     */
+    private transient String upload;
+
+    /**
+     * AWS client of the multipart upload or NULL if not made yet.
+     */
+    private transient AmazonS3 client;
+
+    /**
+     * Ctor.
+     * @param bkt Bucket
+     * @param name Object key
+     * @param mta Metadata of the object
+     */
+    S3Output(final Bucket bkt, final String name, final ObjectMetadata mta) {
+        super();
+        this.bucket = bkt;
+        this.key = name;
+        this.meta = mta;
+    }
+
+    @Override
+    public void write(final int data) throws IOException {
+        this.buffer.write(data);
+        this.flip(false);
+    }
+
+    @Override
+    public void write(final byte[] data, final int off, final int len)
+        throws IOException {
+        this.buffer.write(data, off, len);
+        this.flip(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.upload == null) {
+                this.meta.setContentLength((long) this.buffer.size());
+                this.bucket.ocket(this.key).write(
+                    new ByteArrayInputStream(this.buffer.toByteArray()),
+                    this.meta
+                );
+            } else {
+                boolean done = false;
+                try {
+                    this.flip(true);
+                    this.complete();
+                    done = true;
+                } finally {
+                    if (!done) {
+                        this.abort();
+                    }
+                }
+            }
+        } finally {
+            this.pool.shutdownNow();
+            this.release();
+        }
+    }
+
+    /**
+     * Abort the upload and drop all parts uploaded so far.
+     *
+     * <p>It is safe to call it more than once, the upload is aborted
+     * only the first time.
+     */
+    public void abort() {
+        this.pool.shutdownNow();
+        if (this.upload != null) {
+            final String uid = this.upload;
+            this.upload = null;
+            try {
+                this.aws().abortMultipartUpload(
+                    new AbortMultipartUploadRequest(
+                        this.bucket.name(), this.key, uid
+                    )
+                );
+            } catch (final AmazonClientException ex) {
+                Logger.warn(
+                    this, "failed to abort upload of %s: %s",
+                    this.key, ex.getLocalizedMessage()
+                );
+            }
+        }
+        this.release();
+    }
+
+    /**
+     * Submit the buffer as a new part, if it's big enough.
+     * @param last TRUE if it's the last part, whatever size it is
+     * @throws IOException If fails
+     */
+    private void flip(final boolean last) throws IOException {
+        if (this.buffer.size() >= S3Output.PART
+            || last && this.buffer.size() > 0) {
+            if (this.upload == null) {
+                try {
+                    this.upload = this.aws().initiateMultipartUpload(
+                        new InitiateMultipartUploadRequest(
+                            this.bucket.name(), this.key, this.meta
+                        )
+                    ).getUploadId();
+                } catch (final AmazonClientException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            if (this.parts.size() >= S3Output.THREADS) {
+                S3Output.etag(
+                    this.parts.get(this.parts.size() - S3Output.THREADS)
+                );
+            }
+            final byte[] data = this.buffer.toByteArray();
+            this.buffer.reset();
+            final int number = this.parts.size() + 1;
+            final AmazonS3 aws = this.aws();
+            this.parts.add(
+                this.pool.submit(
+                    new Callable<PartETag>() {
+                        @Override
+                        public PartETag call() {
+                            return S3Output.this.part(aws, number, data);
+                        }
+                    }
+                )
+            );
+        }
+    }
+
+    /**
+     * Upload one part, with a few attempts.
+     * @param aws AWS client
+     * @param number Number of the part, starting from one
+     * @param data Bytes of the part
+     * @return ETag of the part
+     */
+    private PartETag part(final AmazonS3 aws, final int number,
+        final byte[] data) {
+        int attempt = 0;
+        PartETag etag = null;
+        while (etag == null) {
+            try {
+                etag = aws.uploadPart(
+                    new UploadPartRequest()
+                        .withBucketName(this.bucket.name())
+                        .withKey(this.key)
+                        .withUploadId(this.upload)
+                        .withPartNumber(number)
+                        .withInputStream(new ByteArrayInputStream(data))
+                        .withPartSize((long) data.length)
+                ).getPartETag();
+            } catch (final AmazonClientException ex) {
+                ++attempt;
+                if (attempt >= S3Output.ATTEMPTS) {
+                    throw ex;
+                }
+                Logger.warn(
+                    this, "part #%d of %s failed, attempt #%d: %s",
+                    number, this.key, attempt, ex.getLocalizedMessage()
+                );
+            }
+        }
+        return etag;
+    }
+
+    /**
+     * Wait for all parts and complete the upload.
+     * @throws IOException If fails
+     */
+    private void complete() throws IOException {
+        final List<PartETag> etags = new ArrayList<PartETag>(
+            this.parts.size()
+        );
+        for (final Future<PartETag> future : this.parts) {
+            etags.add(S3Output.etag(future));
+        }
+        try {
+            this.aws().completeMultipartUpload(
+                new CompleteMultipartUploadRequest(
+                    this.bucket.name(), this.key, this.upload, etags
+                )
+            );
+        } catch (final AmazonClientException ex) {
+            throw new IOException(ex);
+        }
+        Logger.info(
+            this, "%s uploaded in %d part(s)", this.key, etags.size()
+        );
+    }
+
+    /**
+     * AWS client, made once for the whole upload.
+     * @return Client
+     */
+    private AmazonS3 aws() {
+        if (this.client == null) {
+            this.client = this.bucket.region().aws();
+        }
+        return this.client;
+    }
+
+    /**
+     * Shut down the AWS client, if it was made.
+     */
+    private void release() {
+        if (this.client != null) {
+            this.client.shutdown();
+            this.client = null;
+        }
+    }
+
+    /**
+     * Wait for the part to be uploaded.
+     * @param future The future
+     * @return ETag of the part
+     * @throws IOException If fails
+     */
+    private static PartETag etag(final Future<PartETag> future)
+        throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (final ExecutionException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+}
@@ -50,8 +50,9 @@ import java.util.logging.Level;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.NullInputStream;
 import org.apache.commons.lang3.CharEncoding;
 import org.xembly.Directive;
 import org.xembly.Directives;
@@ -59,6 +60,13 @@ import org.xembly.Directives;
 /**
  * Starts daemon.
  *
+ * <p>The script, assets and GPG keys are sent to the build host
+ * in one tar bundle, and the daemon is started by the same SSH command
+ * that unpacks them.
+ *
+ * <p>When the daemon is finished, its script sends a {@link Ping}
+ * to Rultor, so that it doesn't wait for the next poll.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -92,50 +100,23 @@ public final class StartsDaemon extends AbstractAgent {
         final Shell shell = new TalkShells(xml).get();
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         new Shell.Safe(shell).exec(
-            "mktemp -d -t rultor-XXXX",
-            new NullInputStream(0L),
-            baos, baos
-        );
-        final String dir = baos.toString(CharEncoding.UTF_8).trim();
-        new Shell.Safe(shell).exec(
-            String.format("dir=%s; cat > \"${dir}/run.sh\"", SSH.escape(dir)),
-            IOUtils.toInputStream(
-                Joiner.on('\n').join(
-                    "#!/bin/bash",
-                    "set -x",
-                    "set -e",
-                    "set -o pipefail",
-                    "cd $(dirname $0)",
-                    "echo $$ > ./pid",
-                    String.format(
-                        "echo %s",
-                        SSH.escape(
-                            String.format(
-                                "%s %s",
-                                Manifests.read("Rultor-Version"),
-                                Manifests.read("Rultor-Revision")
-                            )
-                        )
-                    ),
-                    "date",
-                    "uptime",
-                    this.upload(shell, dir),
-                    daemon.xpath("script/text()").get(0)
-                ),
-                CharEncoding.UTF_8
-            ),
-            Logger.stream(Level.INFO, this),
-            Logger.stream(Level.WARNING, this)
-        );
-        new Shell.Empty(new Shell.Safe(shell)).exec(
             Joiner.on(" && ").join(
-                String.format("dir=%s", SSH.escape(dir)),
+                "dir=$(mktemp -d -t rultor-XXXX)",
+                "tar -x -C \"${dir}\"",
                 "chmod a+x \"${dir}/run.sh\"",
                 "echo 'run.sh failed to start' > \"${dir}/stdout\"",
-                // @checkstyle LineLength (1 line)
-                "( ( nohup \"${dir}/run.sh\" </dev/null >\"${dir}/stdout\" 2>&1; echo $? >\"${dir}/status\" ) </dev/null >/dev/null & )"
-            )
+                String.format(
+                    // @checkstyle LineLength (1 line)
+                    "( ( nohup \"${dir}/run.sh\" </dev/null >\"${dir}/stdout\" 2>&1; echo $? >\"${dir}/status\"; %s ) </dev/null >/dev/null & )",
+                    StartsDaemon.ping(xml, daemon)
+                ),
+                "echo \"${dir}\""
+            ),
+            this.bundle(daemon),
+            baos,
+            Logger.stream(Level.WARNING, this)
         );
+        final String dir = baos.toString(CharEncoding.UTF_8).trim();
         Logger.info(this, "daemon started at %s", dir);
         return new Directives()
             .xpath("/talk/daemon[not(started)]")
@@ -145,67 +126,96 @@ public final class StartsDaemon extends AbstractAgent {
     }
 
     /**
-     * Upload assets.
-     * @param shell Shell
-     * @param dir Directory
-     * @return Script to use
+     * Command that tells Rultor that the daemon is finished.
+     *
+     * <p>It's only a hint, if it doesn't reach Rultor the daemon
+     * will be found finished by {@link EndsDaemon} anyway.
+     *
+     * @param xml Talk
+     * @param daemon Daemon
+     * @return Command
+     */
+    private static String ping(final XML xml, final XML daemon) {
+        return String.format(
+            "curl -s -m 10 -X POST %s >/dev/null 2>&1 || true",
+            SSH.escape(
+                new Ping(xml, daemon.xpath("@id").get(0)).uri().toString()
+            )
+        );
+    }
+
+    /**
+     * Make a tar bundle with assets, GPG keys and the script.
+     * @param daemon Daemon
+     * @return Tar
      * @throws IOException If fails
      */
-    private String upload(final Shell shell, final String dir)
-        throws IOException {
+    private InputStream bundle(final XML daemon) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final TarArchiveOutputStream tar = new TarArchiveOutputStream(baos);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
         String script = "";
         try {
+            final Map<String, InputStream> assets = this.profile.assets();
             for (final Map.Entry<String, InputStream> asset
-                : this.profile.assets().entrySet()) {
-                shell.exec(
-                    String.format(
-                        "cat > %s",
-                        SSH.escape(String.format("%s/%s", dir, asset.getKey()))
-                    ),
-                    asset.getValue(),
-                    Logger.stream(Level.INFO, true),
-                    Logger.stream(Level.WARNING, true)
-                );
-                Logger.info(
-                    this, "\"%s\" uploaded into %s",
-                    asset.getKey(), dir
+                : assets.entrySet()) {
+                StartsDaemon.add(
+                    tar, asset.getKey(), IOUtils.toByteArray(asset.getValue())
                 );
             }
-            this.gpg(shell, dir);
+            this.gpg(tar);
+            Logger.info(this, "%d asset(s) bundled", assets.size());
         } catch (final Profile.ConfigException ex) {
             script = Logger.format(
                 "cat << EOT\n%s\nEOT\nexit -1",
                 ex.getLocalizedMessage()
             );
         }
-        return script;
+        StartsDaemon.add(
+            tar, "run.sh",
+            Joiner.on('\n').join(
+                "#!/bin/bash",
+                "set -x",
+                "set -e",
+                "set -o pipefail",
+                "cd $(dirname $0)",
+                "echo $$ > ./pid",
+                String.format(
+                    "echo %s",
+                    SSH.escape(
+                        String.format(
+                            "%s %s",
+                            Manifests.read("Rultor-Version"),
+                            Manifests.read("Rultor-Revision")
+                        )
+                    )
+                ),
+                "date",
+                "uptime",
+                script,
+                daemon.xpath("script/text()").get(0)
+            ).getBytes(CharEncoding.UTF_8)
+        );
+        tar.close();
+        return new ByteArrayInputStream(baos.toByteArray());
     }
 
     /**
-     * Upload GPG keys.
-     * @param shell Shell
-     * @param dir Dir
+     * Add GPG keys to the bundle.
+     * @param tar Tar bundle
      * @throws IOException If fails
      */
-    private void gpg(final Shell shell, final String dir) throws IOException {
+    private void gpg(final TarArchiveOutputStream tar) throws IOException {
         final Collection<XML> entries = this.profile.read().nodes(
             "/p/entry[@key='decrypt']/entry"
         );
         if (!entries.isEmpty()) {
             final String[] names = {"pubring.gpg", "secring.gpg"};
             for (final String name : names) {
-                shell.exec(
-                    Joiner.on(" &&  ").join(
-                        String.format("dir=%s  ", SSH.escape(dir)),
-                        "mkdir -p \"${dir}/.gpg\"",
-                        String.format("cat > \"${dir}/.gpg/%s\"", name)
-                    ),
-                    this.ring(name),
-                    Logger.stream(Level.INFO, true),
-                    Logger.stream(Level.WARNING, true)
+                StartsDaemon.add(
+                    tar, String.format(".gpg/%s", name), this.ring(name)
                 );
             }
-            Logger.info(this, "GPG keys uploaded to %s", dir);
         }
     }
 
@@ -215,16 +225,30 @@ public final class StartsDaemon extends AbstractAgent {
      * @return Content
      * @throws IOException If fails
      */
-    private InputStream ring(final String name) throws IOException {
-        return new ByteArrayInputStream(
-            Base64.decodeBase64(
-                IOUtils.toByteArray(
-                    this.getClass().getResourceAsStream(
-                        String.format("%s.base64", name)
-                    )
+    private byte[] ring(final String name) throws IOException {
+        return Base64.decodeBase64(
+            IOUtils.toByteArray(
+                this.getClass().getResourceAsStream(
+                    String.format("%s.base64", name)
                 )
             )
         );
     }
 
+    /**
+     * Add a file to the bundle.
+     * @param tar Tar bundle
+     * @param name Name of the file
+     * @param data Content of the file
+     * @throws IOException If fails
+     */
+    private static void add(final TarArchiveOutputStream tar,
+        final String name, final byte[] data) throws IOException {
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize((long) data.length);
+        tar.putArchiveEntry(entry);
+        tar.write(data);
+        tar.closeArchiveEntry();
+    }
+
 }
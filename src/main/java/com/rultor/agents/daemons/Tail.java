@@ -29,26 +29,41 @@
  */
 package com.rultor.agents.daemons;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
 import com.jcabi.manifests.Manifests;
-import com.jcabi.s3.Bucket;
-import com.jcabi.s3.Region;
-import com.jcabi.s3.retry.ReRegion;
 import com.jcabi.ssh.SSH;
 import com.jcabi.ssh.Shell;
 import com.jcabi.xml.XML;
 import com.rultor.agents.shells.TalkShells;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.URI;
 import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.io.IOUtils;
@@ -58,6 +73,14 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * Tail daemon output.
  *
+ * <p>Output of a running daemon is streamed from the server, through
+ * a pipe, without keeping it in memory. It can be read starting from
+ * a byte offset, and followed for a while, as it grows. Pipes are served
+ * by a bounded pool of threads; when all of them are busy, reading fails
+ * right away. If the command on the server fails, the reader gets
+ * an {@link IOException} at the end of the stream, instead of a silently
+ * truncated log.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -67,6 +90,24 @@ import org.apache.commons.lang3.StringUtils;
 @EqualsAndHashCode(callSuper = false, of = { "xml", "hash" })
 public final class Tail {
 
+    /**
+     * Content encoding of logs stored in gzip.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * How long to follow the output of a running daemon, in seconds.
+     */
+    private static final int FOLLOW = Tv.TWENTY;
+
+    /**
+     * Threads that pipe output of servers to readers.
+     */
+    private static final ExecutorService PIPES = new ThreadPoolExecutor(
+        0, Tv.TWENTY, 1L, TimeUnit.MINUTES,
+        new SynchronousQueue<Runnable>(), new VerboseThreads("tail")
+    );
+
     /**
      * Talk.
      */
@@ -88,19 +129,51 @@ public final class Tail {
     }
 
     /**
-     * Read it.
+     * Is it an archived log, stored in gzip?
+     * @return TRUE if it is
+     * @throws IOException If fails
+     * @since 2.0
+     */
+    public boolean gzipped() throws IOException {
+        return !this.xml.nodes(this.archived()).isEmpty()
+            && new Tail.S3Connect(this.xml, this.hash).gzipped();
+    }
+
+    /**
+     * Read archived log as is, compressed with gzip.
+     * @return Stream with gzipped log
+     * @throws IOException If fails
+     * @see #gzipped()
+     * @since 2.0
+     */
+    public InputStream gzip() throws IOException {
+        return new Tail.S3Connect(this.xml, this.hash).raw();
+    }
+
+    /**
+     * Read it all.
      * @return Stream with log
      * @throws IOException If fails
      */
-    @SuppressWarnings("unchecked")
     public InputStream read() throws IOException {
+        return this.read(-1L, false);
+    }
+
+    /**
+     * Read raw output, starting from the given byte.
+     * @param offset Bytes to skip, or negative to read it all, cleaned
+     * @param follow TRUE if output should be followed while it grows
+     * @return Stream with log
+     * @throws IOException If fails
+     * @since 2.0
+     */
+    @SuppressWarnings("unchecked")
+    public InputStream read(final long offset, final boolean follow)
+        throws IOException {
         final Collection<Map.Entry<String, Tail.Connect>> connects =
             Arrays.<Map.Entry<String, Tail.Connect>>asList(
                 new AbstractMap.SimpleEntry<String, Tail.Connect>(
-                    String.format(
-                        "/talk/archive/log[@id='%s' and starts-with(.,'s3:')]",
-                        this.hash
-                    ),
+                    this.archived(),
                     new Tail.S3Connect(this.xml, this.hash)
                 ),
                 new AbstractMap.SimpleEntry<String, Tail.Connect>(
@@ -108,23 +181,29 @@ public final class Tail {
                         "/talk[shell and daemon[@id='%s'] and daemon/dir]",
                         this.hash
                     ),
-                    new Tail.SSHConnect(this.xml)
+                    new Tail.SSHConnect(this.xml, follow)
                 ),
                 new AbstractMap.SimpleEntry<String, Tail.Connect>(
                     "/talk",
                     new Tail.Connect() {
                         @Override
-                        public InputStream read() {
-                            return IOUtils.toInputStream(
-                                StringUtils.join(
-                                    String.format(
-                                        "rultor.com %s/%s\n",
-                                        Manifests.read("Rultor-Version"),
-                                        Manifests.read("Rultor-Revision")
-                                    ),
-                                    "nothing yet, try again in 15 seconds"
-                                )
-                            );
+                        public InputStream read(final long skip) {
+                            final InputStream stream;
+                            if (skip < 0L) {
+                                stream = IOUtils.toInputStream(
+                                    StringUtils.join(
+                                        String.format(
+                                            "rultor.com %s/%s\n",
+                                            Manifests.read("Rultor-Version"),
+                                            Manifests.read("Rultor-Revision")
+                                        ),
+                                        "nothing yet, try again in 15 seconds"
+                                    )
+                                );
+                            } else {
+                                stream = new NullInputStream(0L);
+                            }
+                            return stream;
                         }
                     }
                 )
@@ -132,7 +211,7 @@ public final class Tail {
         InputStream stream = null;
         for (final Map.Entry<String, Tail.Connect> ent : connects) {
             if (!this.xml.nodes(ent.getKey()).isEmpty()) {
-                stream = ent.getValue().read();
+                stream = ent.getValue().read(offset);
                 break;
             }
         }
@@ -142,6 +221,17 @@ public final class Tail {
         return stream;
     }
 
+    /**
+     * XPath of the archived log.
+     * @return XPath
+     */
+    private String archived() {
+        return String.format(
+            "/talk/archive/log[@id='%s' and starts-with(.,'s3:')]",
+            this.hash
+        );
+    }
+
     /**
      * Connect to the log.
      */
@@ -149,14 +239,21 @@ public final class Tail {
     private interface Connect {
         /**
          * Read it.
+         * @param offset Bytes to skip, or negative to read it all, cleaned
          * @return Stream
          * @throws IOException If fails
          */
-        InputStream read() throws IOException;
+        InputStream read(long offset) throws IOException;
     }
 
     /**
      * S3 connect.
+     *
+     * <p>Logs are streamed right from the S3 object, through a client
+     * shared by all tails. Metadata of the object is checked first. Logs
+     * stored in gzip are read entirely and decompressed on the fly, since
+     * offsets are in decompressed bytes, while plain logs are read from
+     * the offset by ranged GET.
      */
     @Immutable
     private static final class S3Connect implements Tail.Connect {
@@ -178,7 +275,68 @@ public final class Tail {
             this.hash = name;
         }
         @Override
-        public InputStream read() throws IOException {
+        public InputStream read(final long offset) throws IOException {
+            final ObjectMetadata meta = this.meta();
+            final InputStream stream;
+            if (Tail.S3Connect.gzipped(meta)) {
+                stream = new GZIPInputStream(this.raw());
+                IOUtils.skip(stream, Math.max(0L, offset));
+            } else if (offset >= meta.getContentLength()) {
+                stream = new NullInputStream(0L);
+            } else {
+                final GetObjectRequest get = this.request();
+                if (offset > 0L) {
+                    get.setRange(offset, Long.MAX_VALUE);
+                }
+                try {
+                    stream = Tail.Client.S3.getObject(get).getObjectContent();
+                } catch (final AmazonClientException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            return stream;
+        }
+        /**
+         * Is it stored in gzip?
+         * @return TRUE if it is
+         * @throws IOException If fails
+         */
+        public boolean gzipped() throws IOException {
+            return Tail.S3Connect.gzipped(this.meta());
+        }
+        /**
+         * Metadata of the object.
+         * @return Metadata
+         * @throws IOException If fails
+         */
+        private ObjectMetadata meta() throws IOException {
+            final GetObjectRequest get = this.request();
+            try {
+                return Tail.Client.S3.getObjectMetadata(
+                    get.getBucketName(), get.getKey()
+                );
+            } catch (final AmazonClientException ex) {
+                throw new IOException(ex);
+            }
+        }
+        /**
+         * Read the object as is, without decompressing it.
+         * @return Stream
+         * @throws IOException If fails
+         */
+        public InputStream raw() throws IOException {
+            try {
+                return Tail.Client.S3.getObject(this.request())
+                    .getObjectContent();
+            } catch (final AmazonClientException ex) {
+                throw new IOException(ex);
+            }
+        }
+        /**
+         * Make a request for the object.
+         * @return Request
+         */
+        private GetObjectRequest request() {
             final URI uri = URI.create(
                 this.xml.xpath(
                     String.format(
@@ -187,23 +345,38 @@ public final class Tail {
                     )
                 ).get(0)
             );
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Tail.S3Connect.bucket().ocket(uri.getPath().substring(1)).read(
-                baos
+            return new GetObjectRequest(
+                uri.getHost(), uri.getPath().substring(1)
             );
-            return new ByteArrayInputStream(baos.toByteArray());
         }
         /**
-         * S3 bucket.
-         * @return Bucket
+         * Is it stored in gzip?
+         * @param meta Metadata of the object
+         * @return TRUE if it is
          */
-        private static Bucket bucket() {
-            return new ReRegion(
-                new Region.Simple(
-                    Manifests.read("Rultor-S3Key"),
-                    Manifests.read("Rultor-S3Secret")
-                )
-            ).bucket(Manifests.read("Rultor-S3Bucket"));
+        private static boolean gzipped(final ObjectMetadata meta) {
+            return Tail.GZIP.equals(meta.getContentEncoding());
+        }
+    }
+
+    /**
+     * S3 client, shared by all tails, created on first use.
+     */
+    private static final class Client {
+        /**
+         * The client.
+         */
+        private static final AmazonS3 S3 = new AmazonS3Client(
+            new BasicAWSCredentials(
+                Manifests.read("Rultor-S3Key"),
+                Manifests.read("Rultor-S3Secret")
+            )
+        );
+        /**
+         * Utility class.
+         */
+        private Client() {
+            // intentionally empty
         }
     }
 
@@ -216,27 +389,136 @@ public final class Tail {
          * XML of the talk.
          */
         private final transient XML xml;
+        /**
+         * Follow the output?
+         */
+        private final transient boolean follow;
         /**
          * Ctor.
          * @param talk Talk
+         * @param fllw TRUE if output should be followed
          */
-        private SSHConnect(final XML talk) {
+        private SSHConnect(final XML talk, final boolean fllw) {
             this.xml = talk;
+            this.follow = fllw;
         }
         @Override
-        public InputStream read() throws IOException {
-            final Shell shell = new TalkShells(this.xml).get();
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            shell.exec(
-                String.format(
+        public InputStream read(final long offset) throws IOException {
+            final String dir = SSH.escape(
+                this.xml.xpath("/talk/daemon/dir/text()").get(0)
+            );
+            final String cmd;
+            if (offset < 0L) {
+                cmd = String.format(
                     // @checkstyle LineLength (1 line)
                     "dir=%s; (cat \"${dir}/stdout\" 2>/dev/null || echo \"file $file is gone\") | col -b",
-                    SSH.escape(this.xml.xpath("/talk/daemon/dir/text()").get(0))
-                ),
-                new NullInputStream(0L), baos,
-                Logger.stream(Level.SEVERE, true)
+                    dir
+                );
+            } else if (this.follow) {
+                cmd = String.format(
+                    // @checkstyle LineLength (1 line)
+                    "dir=%s; timeout %d tail -c +%d -f \"${dir}/stdout\" 2>/dev/null || true",
+                    dir, Tail.FOLLOW, offset + 1L
+                );
+            } else {
+                cmd = String.format(
+                    "dir=%s; tail -c +%d \"${dir}/stdout\" 2>/dev/null",
+                    dir, offset + 1L
+                );
+            }
+            return Tail.pipe(new TalkShells(this.xml).dedicated(), cmd);
+        }
+    }
+
+    /**
+     * Run the command and pipe its output to the stream returned,
+     * as it arrives.
+     * @param shell Shell to run the command in
+     * @param cmd The command
+     * @return Stream with the output
+     * @throws IOException If fails
+     */
+    @SuppressWarnings("PMD.DoNotUseThreads")
+    private static InputStream pipe(final Shell shell, final String cmd)
+        throws IOException {
+        final PipedOutputStream output = new PipedOutputStream();
+        final InputStream input = new PipedInputStream(
+            output, Tv.HUNDRED * Tv.THOUSAND
+        );
+        final Future<Integer> future;
+        try {
+            future = Tail.PIPES.submit(
+                new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws IOException {
+                        try {
+                            return shell.exec(
+                                cmd, new NullInputStream(0L), output,
+                                Logger.stream(Level.SEVERE, true)
+                            );
+                        } finally {
+                            output.close();
+                        }
+                    }
+                }
             );
-            return new ByteArrayInputStream(baos.toByteArray());
+        } catch (final RejectedExecutionException ex) {
+            input.close();
+            throw new IOException("too many logs are being read", ex);
+        }
+        return new Tail.Piped(input, future);
+    }
+
+    /**
+     * Output of the command, which fails at the end if the command failed.
+     */
+    private static final class Piped extends FilterInputStream {
+        /**
+         * The command, which writes to the stream.
+         */
+        private final transient Future<Integer> future;
+        /**
+         * Ctor.
+         * @param input Piped input
+         * @param ftr The command
+         */
+        Piped(final InputStream input, final Future<Integer> ftr) {
+            super(input);
+            this.future = ftr;
+        }
+        @Override
+        public int read() throws IOException {
+            return this.check(super.read());
+        }
+        @Override
+        public int read(final byte[] buf, final int off, final int len)
+            throws IOException {
+            return this.check(super.read(buf, off, len));
+        }
+        /**
+         * Check the command at the end of the stream.
+         * @param result Result of reading
+         * @return The same result
+         * @throws IOException If the command failed
+         */
+        private int check(final int result) throws IOException {
+            if (result < 0) {
+                final int code;
+                try {
+                    code = this.future.get();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(ex);
+                } catch (final ExecutionException ex) {
+                    throw new IOException(ex.getCause());
+                }
+                if (code != 0) {
+                    throw new IOException(
+                        String.format("exit code %d", code)
+                    );
+                }
+            }
+            return result;
         }
     }
 
@@ -59,6 +59,11 @@ import org.xembly.Directives;
 /**
  * Starts talk when I'm mentioned in a Github issue.
  *
+ * <p>Mentions usually come through a webhook, the moment they are
+ * posted, while notifications are polled here only to catch those
+ * missed. That's why the window of notifications is ten minutes wide,
+ * longer than a few ticks of routine.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -84,7 +89,7 @@ public final class StartsTalks implements SuperAgent {
     @Override
     public void execute(final Talks talks) throws IOException {
         final String since = new Time(
-            DateUtils.addMinutes(new Date(), -Tv.THREE)
+            DateUtils.addMinutes(new Date(), -Tv.TEN)
         ).iso();
         final Request req = this.github.entry()
             .uri().path("/notifications").back();
@@ -105,7 +110,21 @@ public final class StartsTalks implements SuperAgent {
         );
         final Collection<String> names = new LinkedList<String>();
         for (final JsonObject event : events) {
-            names.add(this.activate(talks, event));
+            names.add(
+                this.activate(
+                    talks,
+                    new Coordinates.Simple(
+                        event.getJsonObject("repository")
+                            .getString("full_name")
+                    ),
+                    Integer.parseInt(
+                        StringUtils.substringAfterLast(
+                            event.getJsonObject("subject").getString("url"),
+                            "/"
+                        )
+                    )
+                )
+            );
         }
         req.uri()
             .queryParam("last_read_at", since).back()
@@ -121,28 +140,29 @@ public final class StartsTalks implements SuperAgent {
     }
 
     /**
-     * Activate talk.
+     * Activate talk of the issue, creating it if necessary.
      * @param talks Talks
-     * @param event Event
+     * @param coords Coordinates of the repo
+     * @param number Number of the issue
      * @return Name of the talk activated
      * @throws IOException If fails
+     * @since 2.0
      */
-    private String activate(final Talks talks, final JsonObject event)
-        throws IOException {
-        final Coordinates coords = new Coordinates.Simple(
-            event.getJsonObject("repository").getString("full_name")
-        );
+    public String activate(final Talks talks, final Coordinates coords,
+        final int number) throws IOException {
         final Issue issue = this.github.repos().get(coords).issues().get(
-            Integer.parseInt(
-                StringUtils.substringAfterLast(
-                    event.getJsonObject("subject").getString("url"),
-                    "/"
-                )
-            )
+            number
         );
         final String name = String.format("%s#%d", coords, issue.number());
         if (!talks.exists(name)) {
-            talks.create(coords.toString(), name);
+            try {
+                talks.create(coords.toString(), name);
+            } catch (final IllegalStateException ex) {
+                if (!talks.exists(name)) {
+                    throw ex;
+                }
+                Logger.info(this, "talk %s was just created by another", name);
+            }
         }
         final Talk talk = talks.get(name);
         talk.modify(
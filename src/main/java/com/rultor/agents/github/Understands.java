@@ -35,6 +35,7 @@ import com.jcabi.github.Bulk;
 import com.jcabi.github.Comment;
 import com.jcabi.github.Github;
 import com.jcabi.github.Issue;
+import com.jcabi.github.RtPagination;
 import com.jcabi.github.Smarts;
 import com.jcabi.log.Logger;
 import com.jcabi.xml.XML;
@@ -44,6 +45,7 @@ import com.rultor.spi.Profile;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.ResourceBundle;
+import javax.json.JsonObject;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -97,20 +99,21 @@ public final class Understands extends AbstractAgent {
     @Override
     public Iterable<Directive> process(final XML xml) throws IOException {
         final Issue.Smart issue = new TalkIssues(this.github, xml).get();
-        final Iterable<Comment.Smart> comments = new Smarts<Comment.Smart>(
-            Iterables.concat(
-                Collections.singleton(new FirstComment(issue)),
-                new Bulk<Comment>(issue.comments().iterate())
-            )
-        );
+        final Iterable<Comment.Smart> comments = this.comments(issue, xml);
         final int seen = Understands.seen(xml);
+        final boolean dated = !xml.nodes("/talk/wire/github-seen-at")
+            .isEmpty();
         int next = seen;
+        String when = "";
         int fresh = 0;
         int total = 0;
         Req req = Req.EMPTY;
         for (final Comment.Smart comment : comments) {
             ++total;
             if (comment.number() <= seen) {
+                if (!dated && comment.number() == seen) {
+                    when = Understands.time(comment);
+                }
                 continue;
             }
             ++fresh;
@@ -119,6 +122,10 @@ public final class Understands extends AbstractAgent {
                 break;
             }
             next = comment.number();
+            final String time = Understands.time(comment);
+            if (!time.isEmpty()) {
+                when = time;
+            }
             if (!req.equals(Req.EMPTY)) {
                 break;
             }
@@ -158,6 +165,11 @@ public final class Understands extends AbstractAgent {
                 .addIf("github-seen")
                 .set(Integer.toString(next));
         }
+        if (!when.isEmpty()) {
+            dirs.xpath("/talk/wire")
+                .addIf("github-seen-at")
+                .set(when);
+        }
         return dirs.xpath("/talk")
             .attr("later", Boolean.toString(!req.equals(Req.EMPTY)));
     }
@@ -188,6 +200,73 @@ public final class Understands extends AbstractAgent {
         return req;
     }
 
+    /**
+     * Comments to look at.
+     *
+     * <p>When the time of the last seen comment is known, only comments
+     * updated since then are fetched from Github, usually one page
+     * with a few of them or none. Otherwise, all comments are fetched,
+     * starting from the body of the issue. Talks made before the time
+     * was recorded get it from their last seen comment, during the
+     * first full pass.
+     *
+     * @param issue The issue
+     * @param xml XML of the talk
+     * @return Comments
+     * @throws IOException If fails
+     */
+    private Iterable<Comment.Smart> comments(final Issue.Smart issue,
+        final XML xml) throws IOException {
+        final Iterable<Comment> comments;
+        if (xml.nodes("/talk/wire/github-seen-at").isEmpty()) {
+            comments = Iterables.concat(
+                Collections.<Comment>singleton(new FirstComment(issue)),
+                new Bulk<Comment>(issue.comments().iterate())
+            );
+        } else {
+            comments = new Bulk<Comment>(
+                new RtPagination<Comment>(
+                    this.github.entry().uri()
+                        .path("/repos")
+                        .path(issue.repo().coordinates().user())
+                        .path(issue.repo().coordinates().repo())
+                        .path("/issues")
+                        .path(Integer.toString(issue.number()))
+                        .path("/comments")
+                        .queryParam(
+                            "since",
+                            xml.xpath("/talk/wire/github-seen-at/text()")
+                                .get(0)
+                        )
+                        .back(),
+                    new RtPagination.Mapping<Comment, JsonObject>() {
+                        @Override
+                        public Comment map(final JsonObject object) {
+                            return issue.comments().get(object.getInt("id"));
+                        }
+                    }
+                )
+            );
+        }
+        return new Smarts<Comment.Smart>(comments);
+    }
+
+    /**
+     * When the comment was created.
+     * @param comment The comment
+     * @return Time in ISO 8601 or empty if unknown
+     * @throws IOException If fails
+     */
+    private static String time(final Comment.Smart comment)
+        throws IOException {
+        final JsonObject json = comment.json();
+        String time = "";
+        if (json.containsKey("created_at")) {
+            time = json.getString("created_at");
+        }
+        return time;
+    }
+
     /**
      * Last seen message.
      * @param xml XML
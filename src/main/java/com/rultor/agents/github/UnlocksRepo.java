@@ -35,6 +35,7 @@ import com.jcabi.github.Github;
 import com.jcabi.github.Issue;
 import com.jcabi.log.Logger;
 import com.jcabi.xml.XML;
+import com.rultor.spi.Agent;
 import com.rultor.spi.SuperAgent;
 import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
@@ -46,6 +47,9 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * Unlocks repo.
  *
+ * <p>It works either as a super agent, with all active talks,
+ * or as an agent, with one talk.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.8.12
@@ -53,7 +57,7 @@ import org.apache.commons.lang3.StringUtils;
 @Immutable
 @ToString
 @EqualsAndHashCode(of = { "locks", "github" })
-public final class UnlocksRepo implements SuperAgent {
+public final class UnlocksRepo implements SuperAgent, Agent {
 
     /**
      * Which talks should be unlocked.
@@ -86,19 +90,15 @@ public final class UnlocksRepo implements SuperAgent {
     @Override
     public void execute(final Talks talks) throws IOException {
         for (final Talk talk : talks.active()) {
-            this.unlock(talk);
+            this.execute(talk);
         }
     }
 
-    /**
-     * Unlock.
-     * @param talk Talk
-     * @throws IOException If fails
-     */
-    private void unlock(final Talk talk) throws IOException {
+    @Override
+    public void execute(final Talk talk) throws IOException {
         final XML xml = talk.read();
         if (!xml.nodes(UnlocksRepo.XPATH).isEmpty()) {
-            final Issue issue = new TalkIssues(this.github, talk.read()).get();
+            final Issue issue = new TalkIssues(this.github, xml).get();
             if (new RepoLock(this.locks, issue.repo()).unlock(talk)) {
                 Logger.info(
                     this, "%s unlocked by %s",
@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.shells;
+
+import com.google.common.base.Joiner;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.immutable.Array;
+import com.jcabi.log.Logger;
+import com.jcabi.ssh.SSH;
+import com.jcabi.ssh.Shell;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Pool of build hosts.
+ *
+ * <p>A new daemon goes to the best host of the pool. A host is good
+ * when it runs less than {@link #MAX} daemons and its disk is less than
+ * {@link #DISK} percent full. Among good hosts, the one that has the
+ * Docker image of the build already pulled wins, and then the one with
+ * the lowest load average. If no host is good, none is picked, and
+ * the daemon has to wait. Hosts are sampled with one SSH command each,
+ * even when there is only one of them, and samples are kept for
+ * a minute, see {@link Samples}. Unreachable hosts are skipped, and
+ * when none of them can be sampled the first one is picked.
+ *
+ * <p>The class is immutable, but all pools share one mutable and
+ * thread-safe memory of samples, in a static field, the same way
+ * shells share sessions in {@link TalkShells}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString(of = "names")
+@EqualsAndHashCode(of = { "names", "port", "login", "key" })
+public final class Hosts {
+
+    /**
+     * Max number of daemons running on one host.
+     */
+    private static final int MAX = 10;
+
+    /**
+     * Max percentage of disk usage on one host.
+     */
+    private static final int DISK = 90;
+
+    /**
+     * Recent samples of all hosts.
+     */
+    static final Samples SAMPLES = new Samples();
+
+    /**
+     * Host names.
+     */
+    private final transient Array<String> names;
+
+    /**
+     * Port.
+     */
+    private final transient int port;
+
+    /**
+     * Login.
+     */
+    private final transient String login;
+
+    /**
+     * Private SSH key.
+     */
+    private final transient String key;
+
+    /**
+     * Ctor.
+     * @param hosts Host names
+     * @param prt Port of them all
+     * @param user Login at all of them
+     * @param priv Private SSH key of them all
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public Hosts(final Iterable<String> hosts, final int prt,
+        final String user, final String priv) {
+        this.names = new Array<String>(hosts);
+        this.port = prt;
+        this.login = user;
+        this.key = priv;
+    }
+
+    /**
+     * Pick the best host for a new daemon.
+     * @param image Docker image the daemon will use
+     * @return Host name or empty if no host is good now
+     */
+    public String pick(final String image) {
+        String best = this.names.get(0);
+        final Collection<Hosts.Option> options =
+            new ArrayList<Hosts.Option>(this.names.size());
+        for (final String host : this.names) {
+            try {
+                options.add(this.option(host, image));
+            } catch (final IOException ex) {
+                Logger.warn(
+                    this, "host %s can't be sampled: %s",
+                    host, ex.getLocalizedMessage()
+                );
+            }
+        }
+        if (!options.isEmpty()) {
+            final Hosts.Option top = Collections.min(options);
+            if (top.good()) {
+                top.placed();
+                best = top.host();
+                Logger.info(this, "%s picked for %s: %s", best, image, top);
+            } else {
+                best = "";
+                Logger.info(this, "no host is good for %s: %s", image, top);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sample the host and check the image, or take recent results.
+     * @param host Host name
+     * @param image Docker image
+     * @return Option
+     * @throws IOException If the host is not reachable
+     */
+    private Hosts.Option option(final String host, final String image)
+        throws IOException {
+        Hosts.Sample sample = Hosts.SAMPLES.sample(host);
+        Boolean pulled = Hosts.SAMPLES.pulled(host, image);
+        if (sample == null) {
+            final List<String> lines = this.exec(
+                host,
+                "cut -d ' ' -f 1 /proc/loadavg",
+                "df -P /tmp | awk 'NR==2 {print $5}' | tr -d '%'",
+                "for d in /tmp/rultor-*",
+                // @checkstyle LineLength (1 line)
+                "do if [ -e \"${d}/pid\" ] && [ ! -e \"${d}/status\" ]; then echo; fi",
+                "done | wc -l",
+                Hosts.image(image)
+            );
+            sample = new Hosts.Sample(
+                Double.parseDouble(lines.get(0)),
+                Integer.parseInt(lines.get(1)),
+                Integer.parseInt(lines.get(2))
+            );
+            pulled = "1".equals(lines.get(Tv.THREE));
+            Hosts.SAMPLES.sampled(host, sample);
+            Hosts.SAMPLES.checked(host, image, pulled);
+        } else if (pulled == null) {
+            pulled = "1".equals(this.exec(host, Hosts.image(image)).get(0));
+            Hosts.SAMPLES.checked(host, image, pulled);
+        }
+        return new Hosts.Option(host, sample, pulled);
+    }
+
+    /**
+     * Run commands on the host.
+     * @param host Host name
+     * @param cmds Commands
+     * @return Words printed by them
+     * @throws IOException If fails
+     */
+    private List<String> exec(final String host, final String... cmds)
+        throws IOException {
+        final Shell shell = TalkShells.shell(
+            host, this.port, this.login, this.key
+        );
+        return new Array<String>(
+            new Shell.Plain(new Shell.Safe(shell)).exec(
+                Joiner.on("; ").join(cmds)
+            ).trim().split("\\s+")
+        );
+    }
+
+    /**
+     * Command that prints 1 if the image is pulled, or 0 otherwise.
+     * @param image Docker image
+     * @return Command
+     */
+    private static String image(final String image) {
+        return String.format(
+            // @checkstyle LineLength (1 line)
+            "if docker images -q %s 2>/dev/null | grep -q .; then echo 1; else echo 0; fi",
+            SSH.escape(image)
+        );
+    }
+
+    /**
+     * Sample of a host.
+     */
+    @ToString
+    static final class Sample {
+        /**
+         * Load average.
+         */
+        private final transient double load;
+        /**
+         * Disk usage, in percent.
+         */
+        private final transient int disk;
+        /**
+         * Daemons running.
+         */
+        private final transient AtomicInteger daemons;
+        /**
+         * Ctor.
+         * @param avg Load average
+         * @param usage Disk usage
+         * @param total Daemons running
+         */
+        Sample(final double avg, final int usage, final int total) {
+            this.load = avg;
+            this.disk = usage;
+            this.daemons = new AtomicInteger(total);
+        }
+        /**
+         * A new daemon is placed to this host.
+         */
+        public void placed() {
+            this.daemons.incrementAndGet();
+        }
+        /**
+         * Is it good enough for a new daemon?
+         * @return TRUE if it is
+         */
+        public boolean good() {
+            return this.daemons.get() < Hosts.MAX && this.disk < Hosts.DISK;
+        }
+    }
+
+    /**
+     * Host as an option for a daemon with a particular image.
+     */
+    @ToString
+    static final class Option implements Comparable<Hosts.Option> {
+        /**
+         * Host name.
+         */
+        private final transient String name;
+        /**
+         * Sample of the host.
+         */
+        private final transient Hosts.Sample sample;
+        /**
+         * Docker image is there already.
+         */
+        private final transient boolean cached;
+        /**
+         * Ctor.
+         * @param host Host name
+         * @param smpl Sample of the host
+         * @param pulled Docker image is there
+         */
+        Option(final String host, final Hosts.Sample smpl,
+            final boolean pulled) {
+            this.name = host;
+            this.sample = smpl;
+            this.cached = pulled;
+        }
+        @Override
+        public int compareTo(final Hosts.Option other) {
+            int cmp = Boolean.compare(other.sample.good(), this.sample.good());
+            if (cmp == 0) {
+                cmp = Boolean.compare(other.cached, this.cached);
+            }
+            if (cmp == 0) {
+                cmp = Double.compare(this.sample.load, other.sample.load);
+            }
+            return cmp;
+        }
+        /**
+         * Host name.
+         * @return Name
+         */
+        public String host() {
+            return this.name;
+        }
+        /**
+         * Is it good enough for a new daemon?
+         * @return TRUE if it is
+         */
+        public boolean good() {
+            return this.sample.good();
+        }
+        /**
+         * A new daemon is placed to this host.
+         */
+        public void placed() {
+            this.sample.placed();
+        }
+    }
+
+}
@@ -46,7 +46,7 @@ import org.apache.commons.io.IOUtils;
  */
 @Immutable
 @ToString
-@EqualsAndHashCode(of = { "profile", "addr", "prt", "user", "pvt" })
+@EqualsAndHashCode(of = { "profile", "hosts", "prt", "user", "pvt" })
 final class PfShell {
 
     /**
@@ -55,9 +55,9 @@ final class PfShell {
     private final transient Profile profile;
 
     /**
-     * Host name.
+     * Default hosts.
      */
-    private final transient String addr;
+    private final transient Hosts hosts;
 
     /**
      * Port to use.
@@ -77,30 +77,43 @@ final class PfShell {
     /**
      * Constructor.
      * @param prof Profile
-     * @param host Default IP address
+     * @param pool Default hosts
      * @param port Default Port of server
      * @param login Defaul Login
      * @param key Default Private SSH key
      * @checkstyle ParameterNumberCheck (6 lines)
      */
-    PfShell(final Profile prof, final String host,
+    PfShell(final Profile prof, final Hosts pool,
         final int port, final String login, final String key) {
         this.profile = prof;
-        this.addr = host;
+        this.hosts = pool;
         this.prt = port;
         this.user = login;
         this.pvt = key;
     }
 
     /**
-     * Get host.
-     * @return Host name
+     * Get host, either from the profile or the best one of the pool.
+     * @return Host name or empty if no host of the pool is good now
      * @throws IOException If fails
      */
     public String host() throws IOException {
-        return new Profile.Defaults(this.profile).text(
-            "/p/entry[@key='ssh']/entry[@key='host']", this.addr
+        final Profile.Defaults defaults = new Profile.Defaults(this.profile);
+        final String custom = defaults.text(
+            "/p/entry[@key='ssh']/entry[@key='host']", ""
         );
+        final String host;
+        if (custom.isEmpty()) {
+            host = this.hosts.pick(
+                defaults.text(
+                    "/p/entry[@key='docker']/entry[@key='image']",
+                    "yegor256/rultor"
+                )
+            );
+        } else {
+            host = custom;
+        }
+        return host;
     }
 
     /**
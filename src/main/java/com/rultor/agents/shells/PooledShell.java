@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.shells;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import com.jcabi.ssh.Shell;
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Shell, which runs commands in channels of pooled SSH sessions.
+ *
+ * <p>A command that can't open a channel in a pooled session tries once
+ * again, in another one. The session is dropped only if it's
+ * disconnected, otherwise it's still used by other commands, and
+ * it just doesn't get more channels, see {@link Sessions#saturate(Session)}.
+ *
+ * <p>Output of the command is written into the streams by the thread
+ * of the session, which serves all its channels, so they must not
+ * block for long. Commands with a lot of output for slow consumers
+ * must use {@link TalkShells#dedicated()} instead. Commands are not
+ * logged, since they may contain secrets, like signed URIs.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "host", "port", "login" })
+@EqualsAndHashCode(of = { "host", "port", "login", "key" })
+final class PooledShell implements Shell {
+
+    /**
+     * How many times to try to open a channel.
+     */
+    private static final int ATTEMPTS = 2;
+
+    /**
+     * Pool of sessions.
+     */
+    private final transient Sessions sessions;
+
+    /**
+     * Host address.
+     */
+    private final transient String host;
+
+    /**
+     * Port.
+     */
+    private final transient int port;
+
+    /**
+     * Login.
+     */
+    private final transient String login;
+
+    /**
+     * Private SSH key.
+     */
+    private final transient String key;
+
+    /**
+     * Ctor.
+     * @param pool Pool of sessions
+     * @param addr Host address
+     * @param prt Port
+     * @param user Login
+     * @param priv Private SSH key
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    PooledShell(final Sessions pool, final String addr, final int prt,
+        final String user, final String priv) {
+        this.sessions = pool;
+        this.host = addr;
+        this.port = prt;
+        this.login = user;
+        this.key = priv;
+    }
+
+    @Override
+    public int exec(final String command, final InputStream stdin,
+        final OutputStream stdout, final OutputStream stderr)
+        throws IOException {
+        final int code;
+        try {
+            final ChannelExec channel = this.open(
+                command, stdin, stdout, stderr
+            );
+            try {
+                code = PooledShell.exit(channel);
+            } finally {
+                channel.disconnect();
+                this.sessions.release(channel.getSession());
+            }
+        } catch (final JSchException ex) {
+            throw new IOException(ex);
+        }
+        Logger.debug(this, "command exited with %d at %s", code, this.host);
+        return code;
+    }
+
+    /**
+     * Open a channel and start the command in it.
+     * @param command Command
+     * @param stdin Stdin
+     * @param stdout Stdout
+     * @param stderr Stderr
+     * @return Channel
+     * @throws JSchException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private ChannelExec open(final String command, final InputStream stdin,
+        final OutputStream stdout, final OutputStream stderr)
+        throws JSchException {
+        int attempt = 0;
+        ChannelExec channel = null;
+        while (channel == null) {
+            final Session session = this.sessions.acquire(
+                this.host, this.port, this.login, this.key
+            );
+            try {
+                final ChannelExec exec =
+                    (ChannelExec) session.openChannel("exec");
+                exec.setCommand(command);
+                exec.setInputStream(stdin, false);
+                exec.setOutputStream(stdout, false);
+                exec.setErrStream(stderr, false);
+                exec.connect();
+                channel = exec;
+            } catch (final JSchException ex) {
+                if (session.isConnected()) {
+                    this.sessions.saturate(session);
+                    this.sessions.release(session);
+                } else {
+                    this.sessions.evict(session);
+                }
+                ++attempt;
+                if (attempt >= PooledShell.ATTEMPTS) {
+                    throw ex;
+                }
+                Logger.warn(
+                    this, "can't open SSH channel, trying again: %s",
+                    ex.getLocalizedMessage()
+                );
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Wait for the command to finish.
+     * @param channel Channel
+     * @return Exit code
+     * @throws IOException If interrupted
+     */
+    private static int exit(final ChannelExec channel) throws IOException {
+        while (!channel.isClosed()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+        }
+        return channel.getExitStatus();
+    }
+
+}
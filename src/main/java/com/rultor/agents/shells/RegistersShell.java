@@ -30,6 +30,7 @@
 package com.rultor.agents.shells;
 
 import com.jcabi.aspects.Immutable;
+import com.jcabi.immutable.Array;
 import com.jcabi.log.Logger;
 import com.jcabi.xml.XML;
 import com.rultor.agents.AbstractAgent;
@@ -67,9 +68,26 @@ public final class RegistersShell extends AbstractAgent {
      * @checkstyle ParameterNumberCheck (6 lines)
      */
     public RegistersShell(final Profile profile, final String host,
+        final int port, final String user, final String key) {
+        this(profile, new Array<String>(host), port, user, key);
+    }
+
+    /**
+     * Constructor.
+     * @param profile Profile
+     * @param hosts Default build hosts, the best of them will be used
+     * @param port Default Port of servers
+     * @param user Defaul Login
+     * @param key Default Private SSH key
+     * @checkstyle ParameterNumberCheck (6 lines)
+     * @since 2.0
+     */
+    public RegistersShell(final Profile profile, final Iterable<String> hosts,
         final int port, final String user, final String key) {
         super("/talk[daemon and not(shell)]");
-        this.shell = new PfShell(profile, host, port, user, key);
+        this.shell = new PfShell(
+            profile, new Hosts(hosts, port, user, key), port, user, key
+        );
     }
 
     @Override
@@ -77,17 +95,25 @@ public final class RegistersShell extends AbstractAgent {
         final String hash = xml.xpath("/talk/daemon/@id").get(0);
         final Directives dirs = new Directives();
         try {
-            Logger.info(
-                this, "shell %s registered as %s:%d in %s",
-                hash, this.shell.host(), this.shell.port(),
-                xml.xpath("/talk/@name").get(0)
-            );
-            dirs.xpath("/talk").add("shell")
-                .attr("id", hash)
-                .add("host").set(this.shell.host()).up()
-                .add("port").set(Integer.toString(this.shell.port())).up()
-                .add("login").set(this.shell.login()).up()
-                .add("key").set(this.shell.key());
+            final String host = this.shell.host();
+            if (host.isEmpty()) {
+                Logger.info(
+                    this, "no host for shell %s in %s yet, will try later",
+                    hash, xml.xpath("/talk/@name").get(0)
+                );
+            } else {
+                Logger.info(
+                    this, "shell %s registered as %s:%d in %s",
+                    hash, host, this.shell.port(),
+                    xml.xpath("/talk/@name").get(0)
+                );
+                dirs.xpath("/talk").add("shell")
+                    .attr("id", hash)
+                    .add("host").set(host).up()
+                    .add("port").set(Integer.toString(this.shell.port())).up()
+                    .add("login").set(this.shell.login()).up()
+                    .add("key").set(this.shell.key());
+            }
         } catch (final Profile.ConfigException ex) {
             dirs.xpath("/talk/daemon/script").set(
                 String.format(
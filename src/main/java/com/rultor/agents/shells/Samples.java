@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.shells;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.jcabi.aspects.Tv;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+
+/**
+ * Recent samples of build hosts, shared by all {@link Hosts}.
+ *
+ * <p>A sample belongs to the host, no matter what image is built, so
+ * daemons placed to the host are counted in one place. Presence of
+ * images is kept separately, by host and image. Both are kept for
+ * a minute.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+final class Samples {
+
+    /**
+     * Recent samples of hosts, by host.
+     */
+    private final transient Cache<String, Hosts.Sample> hosts =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(1L, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Recent checks of Docker images, by host and image.
+     */
+    private final transient Cache<String, Boolean> images =
+        CacheBuilder.newBuilder()
+            .maximumSize((long) Tv.THOUSAND)
+            .expireAfterWrite(1L, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Recent sample of the host.
+     * @param host Host name
+     * @return Sample or NULL if there is no recent one
+     */
+    public Hosts.Sample sample(final String host) {
+        return this.hosts.getIfPresent(host);
+    }
+
+    /**
+     * The host was sampled.
+     * @param host Host name
+     * @param sample Its sample
+     */
+    public void sampled(final String host, final Hosts.Sample sample) {
+        this.hosts.put(host, sample);
+    }
+
+    /**
+     * Is the image pulled to the host, according to a recent check?
+     * @param host Host name
+     * @param image Docker image
+     * @return TRUE if pulled or NULL if there is no recent check
+     */
+    public Boolean pulled(final String host, final String image) {
+        return this.images.getIfPresent(Samples.key(host, image));
+    }
+
+    /**
+     * The image was checked on the host.
+     * @param host Host name
+     * @param image Docker image
+     * @param yes TRUE if it's pulled
+     */
+    public void checked(final String host, final String image,
+        final boolean yes) {
+        this.images.put(Samples.key(host, image), yes);
+    }
+
+    /**
+     * Key of the image check.
+     * @param host Host name
+     * @param image Docker image
+     * @return Key
+     */
+    private static String key(final String host, final String image) {
+        return String.format("%s %s", host, image);
+    }
+
+}
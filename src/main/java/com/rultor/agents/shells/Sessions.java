@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.shells;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+
+/**
+ * Pool of authenticated SSH sessions.
+ *
+ * <p>Sessions are kept open between commands, per host, port, login
+ * and key, and every command opens a new channel in an existing session,
+ * instead of a new TCP connection and a new handshake. No more than
+ * {@link #CHANNELS} channels are open in one session at a time, which
+ * is below the default limit of sshd (MaxSessions). When all sessions
+ * to the host are busy, another one is opened. A session which refused
+ * to open a channel, while still connected, is not given more channels
+ * than it has now.
+ *
+ * <p>A session which is disconnected is dropped from the pool. A session
+ * without open channels, which wasn't used for a while, is disconnected
+ * and dropped too. Idle time is counted from the moment its last channel
+ * was closed, so long commands are never interrupted.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "all")
+final class Sessions {
+
+    /**
+     * How many channels may be open in one session.
+     */
+    public static final int CHANNELS = Tv.EIGHT;
+
+    /**
+     * How long a session may stay idle in the pool, in msec.
+     */
+    private static final long IDLE = TimeUnit.MINUTES.toMillis(Tv.FIVE);
+
+    /**
+     * Connect timeout, in msec.
+     */
+    private static final int TIMEOUT =
+        (int) TimeUnit.SECONDS.toMillis(Tv.TEN);
+
+    /**
+     * Keep-alive interval, in msec.
+     */
+    private static final int ALIVE =
+        (int) TimeUnit.SECONDS.toMillis(Tv.THIRTY);
+
+    /**
+     * Sessions by their addresses.
+     */
+    private final transient Map<String, Collection<Session>> all =
+        new HashMap<String, Collection<Session>>(0);
+
+    /**
+     * Open channels, by session.
+     */
+    private final transient Map<Session, Integer> channels =
+        new HashMap<Session, Integer>(0);
+
+    /**
+     * Max channels, by session.
+     */
+    private final transient Map<Session, Integer> limits =
+        new HashMap<Session, Integer>(0);
+
+    /**
+     * When sessions were used last time.
+     */
+    private final transient Map<Session, Long> used =
+        new HashMap<Session, Long>(0);
+
+    /**
+     * Take a connected session, either from the pool or a new one, and
+     * reserve a channel in it.
+     *
+     * <p>The channel has to be released by {@link #release(Session)},
+     * when it's closed.
+     *
+     * @param host Host address
+     * @param port Port
+     * @param login Login
+     * @param key Private SSH key
+     * @return Session
+     * @throws JSchException If fails to connect
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public Session acquire(final String host, final int port,
+        final String login, final String key) throws JSchException {
+        final String address = Sessions.address(host, port, login, key);
+        Session session = this.free(address);
+        if (session == null) {
+            final Session fresh = Sessions.connect(host, port, login, key);
+            synchronized (this.all) {
+                Collection<Session> list = this.all.get(address);
+                if (list == null) {
+                    list = new LinkedList<Session>();
+                    this.all.put(address, list);
+                }
+                list.add(fresh);
+                this.limits.put(fresh, Sessions.CHANNELS);
+                this.channels.put(fresh, 1);
+                this.used.put(fresh, System.currentTimeMillis());
+            }
+            session = fresh;
+        }
+        return session;
+    }
+
+    /**
+     * The channel reserved in the session is closed.
+     * @param session The session
+     */
+    public void release(final Session session) {
+        synchronized (this.all) {
+            final Integer open = this.channels.get(session);
+            if (open != null) {
+                this.channels.put(session, Math.max(0, open - 1));
+                this.used.put(session, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * The session refused to open one more channel, while connected,
+     * don't give it more channels than it has now.
+     * @param session The session
+     */
+    public void saturate(final Session session) {
+        synchronized (this.all) {
+            final Integer open = this.channels.get(session);
+            if (open != null) {
+                this.limits.put(session, Math.max(1, open - 1));
+            }
+        }
+    }
+
+    /**
+     * Drop the session from the pool, because it's broken.
+     * @param session The session
+     */
+    public void evict(final Session session) {
+        synchronized (this.all) {
+            this.forget(session);
+        }
+        session.disconnect();
+    }
+
+    /**
+     * Find a connected session with a free channel and reserve it.
+     * @param address Address of the session
+     * @return Session or NULL if there is none
+     */
+    private Session free(final String address) {
+        synchronized (this.all) {
+            this.sweep();
+            Session found = null;
+            final Collection<Session> list = this.all.get(address);
+            if (list != null) {
+                for (final Session session : new ArrayList<Session>(list)) {
+                    if (!session.isConnected()) {
+                        this.forget(session);
+                        session.disconnect();
+                        continue;
+                    }
+                    final int open = this.channels.get(session);
+                    if (found == null && open < this.limits.get(session)) {
+                        found = session;
+                        this.channels.put(session, open + 1);
+                        this.used.put(session, System.currentTimeMillis());
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Disconnect and drop sessions without channels, which are idle
+     * for too long. Must be called while the pool is locked.
+     */
+    private void sweep() {
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<Session, Long> entry
+            : new ArrayList<Map.Entry<Session, Long>>(this.used.entrySet())) {
+            final Session session = entry.getKey();
+            if (this.channels.get(session) == 0
+                && now - entry.getValue() > Sessions.IDLE) {
+                this.forget(session);
+                session.disconnect();
+                Logger.info(
+                    this, "idle SSH session to %s@%s:%d closed",
+                    session.getUserName(), session.getHost(),
+                    session.getPort()
+                );
+            }
+        }
+    }
+
+    /**
+     * Forget the session. Must be called while the pool is locked.
+     * @param session The session
+     */
+    private void forget(final Session session) {
+        final Iterator<Collection<Session>> lists =
+            this.all.values().iterator();
+        while (lists.hasNext()) {
+            final Collection<Session> list = lists.next();
+            list.remove(session);
+            if (list.isEmpty()) {
+                lists.remove();
+            }
+        }
+        this.channels.remove(session);
+        this.limits.remove(session);
+        this.used.remove(session);
+    }
+
+    /**
+     * Open a new session.
+     * @param host Host address
+     * @param port Port
+     * @param login Login
+     * @param key Private SSH key
+     * @return Session
+     * @throws JSchException If fails to connect
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static Session connect(final String host, final int port,
+        final String login, final String key) throws JSchException {
+        final JSch jsch = new JSch();
+        jsch.addIdentity(
+            login, key.getBytes(Charsets.UTF_8), null, null
+        );
+        final Session session = jsch.getSession(login, host, port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.setServerAliveInterval(Sessions.ALIVE);
+        session.setServerAliveCountMax(Tv.THREE);
+        session.connect(Sessions.TIMEOUT);
+        Logger.info(
+            Sessions.class, "SSH session to %s@%s:%d opened",
+            login, host, port
+        );
+        return session;
+    }
+
+    /**
+     * Unique address of a session.
+     * @param host Host address
+     * @param port Port
+     * @param login Login
+     * @param key Private SSH key
+     * @return Address
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static String address(final String host, final int port,
+        final String login, final String key) {
+        return String.format(
+            "%s@%s:%d/%s", login, host, port,
+            Hashing.sha256().hashString(key, Charsets.UTF_8)
+        );
+    }
+
+}
@@ -33,6 +33,7 @@ import com.jcabi.aspects.Immutable;
 import com.jcabi.ssh.SSH;
 import com.jcabi.ssh.Shell;
 import com.jcabi.xml.XML;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -40,6 +41,9 @@ import lombok.ToString;
 /**
  * Shells referenced from Talks.
  *
+ * <p>All shells share one pool of SSH sessions, see {@link Sessions},
+ * except dedicated ones, which open their own session for every command.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -49,6 +53,11 @@ import lombok.ToString;
 @EqualsAndHashCode(of = "xml")
 public final class TalkShells {
 
+    /**
+     * SSH sessions of all shells.
+     */
+    private static final Sessions SESSIONS = new Sessions();
+
     /**
      * Encapsulated XML.
      */
@@ -68,6 +77,30 @@ public final class TalkShells {
      * @throws UnknownHostException If fails
      */
     public Shell get() throws UnknownHostException {
+        final XML shell = this.xml.nodes("/talk/shell").get(0);
+        return TalkShells.shell(
+            shell.xpath("host/text()").get(0),
+            Integer.parseInt(shell.xpath("port/text()").get(0)),
+            shell.xpath("login/text()").get(0),
+            shell.xpath("key/text()").get(0)
+        );
+    }
+
+    /**
+     * Find and get shell, which runs every command in its own SSH session.
+     *
+     * <p>All channels of a pooled session are served by one thread
+     * of JSch, which writes their output right into the streams given
+     * to {@link Shell#exec}. A command that streams a lot of output
+     * into a slow consumer, like a log being uploaded or followed by
+     * a browser, would stall other commands of the session, that's why
+     * it has to use this shell instead.
+     *
+     * @return Shell
+     * @throws UnknownHostException If fails
+     * @since 2.0
+     */
+    public Shell dedicated() throws UnknownHostException {
         final XML shell = this.xml.nodes("/talk/shell").get(0);
         return new SSH(
             shell.xpath("host/text()").get(0),
@@ -76,4 +109,23 @@ public final class TalkShells {
             shell.xpath("key/text()").get(0)
         );
     }
+
+    /**
+     * Make a shell, in the shared pool of sessions.
+     * @param host Host name
+     * @param port Port
+     * @param login Login
+     * @param key Private SSH key
+     * @return Shell
+     * @throws UnknownHostException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    static Shell shell(final String host, final int port,
+        final String login, final String key) throws UnknownHostException {
+        return new PooledShell(
+            TalkShells.SESSIONS,
+            InetAddress.getByName(host).getHostAddress(),
+            port, login, key
+        );
+    }
 }
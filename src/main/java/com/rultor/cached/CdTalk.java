@@ -29,12 +29,12 @@
  */
 package com.rultor.cached;
 
-import com.jcabi.aspects.Cacheable;
-import com.jcabi.aspects.Immutable;
 import com.jcabi.xml.XML;
 import com.rultor.spi.Talk;
 import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.xembly.Directive;
@@ -42,12 +42,15 @@ import org.xembly.Directive;
 /**
  * Cached talk.
  *
+ * <p>Its XML and date are kept in {@link Memory}, by name of the talk,
+ * and evicted from there when the talk is modified through this
+ * object.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.51
  */
-@Immutable
-@ToString
+@ToString(of = "origin")
 @EqualsAndHashCode(of = "origin")
 public final class CdTalk implements Talk {
     /**
@@ -55,48 +58,91 @@ public final class CdTalk implements Talk {
      */
     private final transient Talk origin;
 
+    /**
+     * Memory.
+     */
+    private final transient Memory memory;
+
+    /**
+     * Name of the talk, when known.
+     */
+    private final transient AtomicReference<String> label =
+        new AtomicReference<String>();
+
+    /**
+     * Number of the talk, when known.
+     */
+    private final transient AtomicReference<Long> num =
+        new AtomicReference<Long>();
+
     /**
      * Ctor.
      * @param talk Talks
+     * @param mem Memory
      */
-    CdTalk(final Talk talk) {
+    CdTalk(final Talk talk, final Memory mem) {
         this.origin = talk;
+        this.memory = mem;
     }
 
     @Override
-    @Cacheable
     public Long number() throws IOException {
-        return this.origin.number();
+        if (this.num.get() == null) {
+            this.num.set(this.origin.number());
+        }
+        return this.num.get();
     }
 
     @Override
-    @Cacheable
     public String name() throws IOException {
-        return this.origin.name();
+        if (this.label.get() == null) {
+            this.label.set(this.origin.name());
+        }
+        return this.label.get();
     }
 
     @Override
-    @Cacheable
     public Date updated() throws IOException {
-        return this.origin.updated();
+        return this.memory.updated(
+            this.name(),
+            new Callable<Date>() {
+                @Override
+                public Date call() throws IOException {
+                    return CdTalk.this.origin.updated();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable
     public XML read() throws IOException {
-        return this.origin.read();
+        return this.memory.xml(
+            this.name(),
+            new Callable<XML>() {
+                @Override
+                public XML call() throws IOException {
+                    return CdTalk.this.origin.read();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void modify(final Iterable<Directive> dirs) throws IOException {
-        this.origin.modify(dirs);
+        try {
+            this.origin.modify(dirs);
+        } finally {
+            this.memory.modified(this.name());
+        }
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void active(final boolean yes) throws IOException {
-        this.origin.active(yes);
+        try {
+            this.origin.active(yes);
+        } finally {
+            this.memory.toggled(this.name());
+        }
     }
 
 }
@@ -29,30 +29,29 @@
  */
 package com.rultor.cached;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.jcabi.aspects.Cacheable;
-import com.jcabi.aspects.Immutable;
-import com.jcabi.aspects.Tv;
 import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
-import java.util.concurrent.TimeUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 /**
  * Cached talks.
  *
+ * <p>All cached data live in {@link Memory}, which may be shared
+ * with other objects, for example in order to render its statistics.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.51
  * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
  */
-@Immutable
-@ToString
+@ToString(of = "origin")
 @EqualsAndHashCode(of = "origin")
 @SuppressWarnings("PMD.TooManyMethods")
 public final class CdTalks implements Talks {
@@ -62,96 +61,142 @@ public final class CdTalks implements Talks {
      */
     private final transient Talks origin;
 
+    /**
+     * Memory.
+     */
+    private final transient Memory memory;
+
     /**
      * Public ctor.
      * @param talks Talks
      */
     public CdTalks(final Talks talks) {
+        this(talks, new Memory());
+    }
+
+    /**
+     * Public ctor.
+     * @param talks Talks
+     * @param mem Memory
+     * @since 2.0
+     */
+    public CdTalks(final Talks talks, final Memory mem) {
         this.origin = talks;
+        this.memory = mem;
     }
 
     @Override
-    @Cacheable
     public boolean exists(final long number) {
-        return this.origin.exists(number);
+        return this.memory.has(number) || this.origin.exists(number);
     }
 
     @Override
-    @Cacheable
     public Talk get(final long number) {
-        return this.origin.get(number);
+        return this.memory.talk(
+            number,
+            new Callable<Talk>() {
+                @Override
+                public Talk call() {
+                    return new CdTalk(
+                        CdTalks.this.origin.get(number), CdTalks.this.memory
+                    );
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable
     public boolean exists(final String name) {
-        return this.origin.exists(name);
+        return this.memory.has(name) || this.origin.exists(name);
     }
 
     @Override
-    @Cacheable
     public Talk get(final String name) {
-        return this.origin.get(name);
+        return this.memory.talk(
+            name,
+            new Callable<Talk>() {
+                @Override
+                public Talk call() {
+                    return new CdTalk(
+                        CdTalks.this.origin.get(name), CdTalks.this.memory
+                    );
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void delete(final String name) {
-        this.origin.delete(name);
+        try {
+            this.origin.delete(name);
+        } finally {
+            this.memory.deleted(name);
+        }
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void create(final String repo, final String name)
         throws IOException {
-        this.origin.create(repo, name);
+        try {
+            this.origin.create(repo, name);
+        } finally {
+            this.memory.created(repo, name);
+        }
     }
 
     @Override
-    @Cacheable
     public Iterable<Talk> active() {
-        return Lists.newArrayList(
-            Iterables.transform(
-                this.origin.active(),
-                new Function<Talk, Talk>() {
-                    @Override
-                    public Talk apply(final Talk input) {
-                        return new CdTalk(input);
-                    }
+        return this.memory.active(
+            new Callable<Map<String, Talk>>() {
+                @Override
+                public Map<String, Talk> call() throws IOException {
+                    return CdTalks.this.wrap(CdTalks.this.origin.active());
                 }
-            )
+            }
         );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.TWENTY, unit = TimeUnit.MINUTES)
     public Iterable<Talk> recent() {
-        return Lists.newArrayList(
-            Iterables.transform(
-                this.origin.recent(),
-                new Function<Talk, Talk>() {
-                    @Override
-                    public Talk apply(final Talk input) {
-                        return new CdTalk(input);
-                    }
+        return this.memory.recent(
+            new Callable<Map<String, Talk>>() {
+                @Override
+                public Map<String, Talk> call() throws IOException {
+                    return CdTalks.this.wrap(CdTalks.this.origin.recent());
                 }
-            )
+            }
         );
     }
 
     @Override
-    @Cacheable
     public Iterable<Talk> siblings(final String repo, final Date since) {
-        return Lists.newArrayList(
-            Iterables.transform(
-                this.origin.siblings(repo, since),
-                new Function<Talk, Talk>() {
-                    @Override
-                    public Talk apply(final Talk input) {
-                        return new CdTalk(input);
-                    }
+        return this.memory.siblings(
+            repo, since,
+            new Callable<Map<String, Talk>>() {
+                @Override
+                public Map<String, Talk> call() throws IOException {
+                    return CdTalks.this.wrap(
+                        CdTalks.this.origin.siblings(repo, since)
+                    );
                 }
-            )
+            }
         );
     }
+
+    /**
+     * Wrap them all, keeping their order.
+     * @param talks Talks to wrap
+     * @return Wrapped talks, by name
+     * @throws IOException If fails
+     */
+    private Map<String, Talk> wrap(final Iterable<Talk> talks)
+        throws IOException {
+        final Map<String, Talk> map = new LinkedHashMap<String, Talk>(0);
+        for (final Talk talk : talks) {
+            final Talk cached = new CdTalk(talk, this.memory);
+            map.put(cached.name(), cached);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
 }
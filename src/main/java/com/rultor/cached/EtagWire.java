@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.cached;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import com.jcabi.http.response.DefaultResponse;
+import com.jcabi.immutable.Array;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Wire that sends conditional GET requests to Github.
+ *
+ * <p>ETags and bodies of successful GET responses are kept in one
+ * bounded cache, shared by all wires. When a URI is requested again,
+ * its ETag goes to the server in If-None-Match header, and if the
+ * server replies with 304, the cached response is returned instead.
+ * Github doesn't count such replies against the rate limit.
+ *
+ * <p>Use it like this:
+ *
+ * <pre> new RtGithub(
+ *   new RtGithub(token).entry().through(EtagWire.class)
+ * );</pre>
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString(of = "origin")
+@EqualsAndHashCode(of = "origin")
+public final class EtagWire implements Wire {
+
+    /**
+     * Name of the ETag header.
+     */
+    private static final String ETAG = "ETag";
+
+    /**
+     * Responses with ETags, by URI.
+     */
+    private static final Cache<String, Response> CACHE =
+        CacheBuilder.newBuilder()
+            .maximumSize((long) Tv.THOUSAND)
+            .expireAfterAccess(1L, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * Responses taken from the cache.
+     */
+    private static final AtomicLong HITS = new AtomicLong();
+
+    /**
+     * Responses not found in the cache or expired.
+     */
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    /**
+     * Original wire.
+     */
+    private final transient Wire origin;
+
+    /**
+     * Public ctor.
+     * @param wire Original wire
+     */
+    public EtagWire(final Wire wire) {
+        this.origin = wire;
+    }
+
+    /**
+     * Statistics of all wires.
+     * @return Size of the cache, hits and misses
+     */
+    public static Map<String, Long> stats() {
+        final Map<String, Long> stats = new TreeMap<String, Long>();
+        stats.put("size", EtagWire.CACHE.size());
+        stats.put("hits", EtagWire.HITS.get());
+        stats.put("misses", EtagWire.MISSES.get());
+        return stats;
+    }
+
+    // @checkstyle ParameterNumberCheck (7 lines)
+    @Override
+    public Response send(final Request req, final String home,
+        final String method,
+        final Collection<Map.Entry<String, String>> headers,
+        final InputStream content) throws IOException {
+        final Response cached;
+        if (Request.GET.equals(method)) {
+            cached = EtagWire.CACHE.getIfPresent(home);
+        } else {
+            cached = null;
+        }
+        final Collection<Map.Entry<String, String>> hdrs =
+            new ArrayList<Map.Entry<String, String>>(headers);
+        if (cached != null) {
+            hdrs.add(
+                new AbstractMap.SimpleImmutableEntry<String, String>(
+                    "If-None-Match",
+                    cached.headers().get(EtagWire.ETAG).get(0)
+                )
+            );
+        }
+        final Response rsp = this.origin.send(
+            req, home, method, hdrs, content
+        );
+        final Response response;
+        if (cached != null
+            && rsp.status() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            EtagWire.HITS.incrementAndGet();
+            response = new DefaultResponse(
+                req, cached.status(), cached.reason(),
+                EtagWire.headers(cached), cached.binary()
+            );
+        } else {
+            if (Request.GET.equals(method)) {
+                EtagWire.MISSES.incrementAndGet();
+                if (rsp.status() == HttpURLConnection.HTTP_OK
+                    && rsp.headers().containsKey(EtagWire.ETAG)) {
+                    EtagWire.CACHE.put(home, rsp);
+                } else {
+                    EtagWire.CACHE.invalidate(home);
+                }
+            }
+            response = rsp;
+        }
+        return response;
+    }
+
+    /**
+     * Headers of the response, as a flat array.
+     * @param response Response
+     * @return Headers
+     */
+    private static Array<Map.Entry<String, String>> headers(
+        final Response response) {
+        final Collection<Map.Entry<String, String>> all =
+            new ArrayList<Map.Entry<String, String>>(0);
+        for (final Map.Entry<String, List<String>> header
+            : response.headers().entrySet()) {
+            for (final String value : header.getValue()) {
+                all.add(
+                    new AbstractMap.SimpleImmutableEntry<String, String>(
+                        header.getKey(), value
+                    )
+                );
+            }
+        }
+        return new Array<Map.Entry<String, String>>(all);
+    }
+
+}
@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.cached;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.jcabi.aspects.Tv;
+import com.jcabi.xml.XML;
+import com.rultor.spi.Talk;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+
+/**
+ * In-memory storage of cached talks and their views.
+ *
+ * <p>Every view has its own cache, with its own size limit and
+ * lifetime. When a talk is modified only its own entries are evicted,
+ * together with the lists it belongs to, except the recent ones, which
+ * are evicted only when a talk is activated or deactivated, since the
+ * XML of recent talks is read through its own cache anyway. Lifetimes
+ * are short, since other nodes may modify talks without telling us.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+@ToString(of = "all")
+@SuppressWarnings("PMD.TooManyMethods")
+public final class Memory {
+
+    /**
+     * Max number of talks to keep in each cache.
+     */
+    private static final long SIZE = (long) Tv.THOUSAND;
+
+    /**
+     * All caches, by name.
+     */
+    private final transient Map<String, Cache<?, ?>> all =
+        new ConcurrentSkipListMap<String, Cache<?, ?>>();
+
+    /**
+     * XML of talks, by name.
+     */
+    private final transient Cache<String, XML> xmls =
+        this.make("xml", Memory.SIZE, 1L, TimeUnit.MINUTES);
+
+    /**
+     * Dates of talks, by name.
+     */
+    private final transient Cache<String, Date> dates =
+        this.make("updated", Memory.SIZE, 1L, TimeUnit.MINUTES);
+
+    /**
+     * Talks, by name.
+     */
+    private final transient Cache<String, Talk> names =
+        this.make("names", Memory.SIZE, (long) Tv.TEN, TimeUnit.MINUTES);
+
+    /**
+     * Talks, by number.
+     */
+    private final transient Cache<Long, Talk> numbers =
+        this.make("numbers", Memory.SIZE, (long) Tv.TEN, TimeUnit.MINUTES);
+
+    /**
+     * Active talks, under one key.
+     */
+    private final transient Cache<String, Map<String, Talk>> actives =
+        this.make("active", 1L, 1L, TimeUnit.MINUTES);
+
+    /**
+     * Recent talks, under one key.
+     */
+    private final transient Cache<String, Map<String, Talk>> recents =
+        this.make("recent", 1L, (long) Tv.TWENTY, TimeUnit.MINUTES);
+
+    /**
+     * Siblings, by repo and date.
+     */
+    private final transient Cache<String, Map<String, Talk>> siblings =
+        this.make("siblings", (long) Tv.HUNDRED, 1L, TimeUnit.MINUTES);
+
+    /**
+     * Statistics of all caches, by name.
+     * @return Stats
+     */
+    public Map<String, CacheStats> stats() {
+        final Map<String, CacheStats> stats =
+            new ConcurrentSkipListMap<String, CacheStats>();
+        for (final Map.Entry<String, Cache<?, ?>> ent : this.all.entrySet()) {
+            stats.put(ent.getKey(), ent.getValue().stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Sizes of all caches, by name.
+     * @return Sizes
+     */
+    public Map<String, Long> sizes() {
+        final Map<String, Long> sizes =
+            new ConcurrentSkipListMap<String, Long>();
+        for (final Map.Entry<String, Cache<?, ?>> ent : this.all.entrySet()) {
+            sizes.put(ent.getKey(), ent.getValue().size());
+        }
+        return sizes;
+    }
+
+    /**
+     * XML of the talk.
+     * @param name Name of the talk
+     * @param load Loader
+     * @return XML
+     * @throws IOException If fails
+     */
+    XML xml(final String name, final Callable<XML> load) throws IOException {
+        return Memory.fetch(this.xmls, name, load);
+    }
+
+    /**
+     * Date of the talk.
+     * @param name Name of the talk
+     * @param load Loader
+     * @return Date
+     * @throws IOException If fails
+     */
+    Date updated(final String name, final Callable<Date> load)
+        throws IOException {
+        return Memory.fetch(this.dates, name, load);
+    }
+
+    /**
+     * Talk by name.
+     * @param name Name of the talk
+     * @param load Loader
+     * @return Talk
+     */
+    Talk talk(final String name, final Callable<Talk> load) {
+        return Memory.unchecked(this.names, name, load);
+    }
+
+    /**
+     * Talk by number.
+     * @param number Number of the talk
+     * @param load Loader
+     * @return Talk
+     */
+    Talk talk(final long number, final Callable<Talk> load) {
+        return Memory.unchecked(this.numbers, number, load);
+    }
+
+    /**
+     * Do we have this talk?
+     * @param name Name of the talk
+     * @return TRUE if it's in cache
+     */
+    boolean has(final String name) {
+        return this.names.getIfPresent(name) != null;
+    }
+
+    /**
+     * Do we have this talk?
+     * @param number Number of the talk
+     * @return TRUE if it's in cache
+     */
+    boolean has(final long number) {
+        return this.numbers.getIfPresent(number) != null;
+    }
+
+    /**
+     * Active talks.
+     * @param load Loader
+     * @return Talks
+     */
+    Collection<Talk> active(final Callable<Map<String, Talk>> load) {
+        return Memory.unchecked(this.actives, "", load).values();
+    }
+
+    /**
+     * Recent talks.
+     * @param load Loader
+     * @return Talks
+     */
+    Collection<Talk> recent(final Callable<Map<String, Talk>> load) {
+        return Memory.unchecked(this.recents, "", load).values();
+    }
+
+    /**
+     * Siblings.
+     * @param repo Name of the repo
+     * @param since Date
+     * @param load Loader
+     * @return Talks
+     */
+    Collection<Talk> siblings(final String repo, final Date since,
+        final Callable<Map<String, Talk>> load) {
+        return Memory.unchecked(
+            this.siblings,
+            String.format("%s %d", repo, since.getTime()),
+            load
+        ).values();
+    }
+
+    /**
+     * The talk was modified.
+     * @param name Name of the talk
+     */
+    void modified(final String name) {
+        this.xmls.invalidate(name);
+        this.dates.invalidate(name);
+        for (final Map.Entry<String, Map<String, Talk>> ent
+            : this.siblings.asMap().entrySet()) {
+            if (ent.getValue().containsKey(name)) {
+                this.siblings.invalidate(ent.getKey());
+            }
+        }
+    }
+
+    /**
+     * The talk was activated or deactivated.
+     * @param name Name of the talk
+     */
+    void toggled(final String name) {
+        this.modified(name);
+        this.actives.invalidateAll();
+        this.recents.invalidateAll();
+    }
+
+    /**
+     * The talk was created.
+     * @param repo Repo it belongs to
+     * @param name Name of the talk
+     */
+    void created(final String repo, final String name) {
+        this.toggled(name);
+        final String prefix = String.format("%s ", repo);
+        for (final String key : this.siblings.asMap().keySet()) {
+            if (key.startsWith(prefix)) {
+                this.siblings.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * The talk was deleted.
+     * @param name Name of the talk
+     */
+    void deleted(final String name) {
+        this.toggled(name);
+        this.names.invalidate(name);
+        this.numbers.invalidateAll();
+    }
+
+    /**
+     * Make a cache and register it.
+     * @param name Name of it
+     * @param size Max size
+     * @param ttl Lifetime of entries
+     * @param unit Time unit of lifetime
+     * @param <K> Type of key
+     * @param <V> Type of value
+     * @return Cache
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private <K, V> Cache<K, V> make(final String name, final long size,
+        final long ttl, final TimeUnit unit) {
+        final Cache<K, V> cache = CacheBuilder.newBuilder()
+            .maximumSize(size)
+            .expireAfterWrite(ttl, unit)
+            .recordStats()
+            .build();
+        this.all.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * Fetch from cache or load.
+     * @param cache The cache
+     * @param key The key
+     * @param load Loader
+     * @param <K> Type of key
+     * @param <V> Type of value
+     * @return Value
+     * @throws IOException If fails
+     */
+    private static <K, V> V fetch(final Cache<K, V> cache, final K key,
+        final Callable<V> load) throws IOException {
+        try {
+            return cache.get(key, load);
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw IOException.class.cast(ex.getCause());
+            }
+            throw new IllegalStateException(ex);
+        } catch (final UncheckedExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Fetch from cache or load, without checked exceptions.
+     * @param cache The cache
+     * @param key The key
+     * @param load Loader
+     * @param <K> Type of key
+     * @param <V> Type of value
+     * @return Value
+     */
+    private static <K, V> V unchecked(final Cache<K, V> cache, final K key,
+        final Callable<V> load) {
+        try {
+            return Memory.fetch(cache, key, load);
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
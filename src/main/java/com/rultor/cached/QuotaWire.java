@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.cached;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Wire that respects the rate limit of Github.
+ *
+ * <p>Every response from Github reports how many requests are left
+ * and when the limit will be reset, in X-RateLimit-Remaining and
+ * X-RateLimit-Reset headers. The wire remembers them, shared by all
+ * wires, and when there are fewer than {@link #RESERVE} requests left,
+ * it fails immediately with {@link IOException}, without sending
+ * anything, until the limit is reset. Put it on top of
+ * {@link com.jcabi.http.wire.RetryWire}, so that such failures are
+ * not retried:
+ *
+ * <pre> new RtGithub(
+ *   new RtGithub(token).entry()
+ *     .through(RetryWire.class)
+ *     .through(QuotaWire.class)
+ * );</pre>
+ *
+ * <p>Requests answered with 304 are not counted, since Github doesn't
+ * charge for them. Requests are counted by all wires together, see
+ * {@link #sent()}, and by the current thread, see {@link #mine()},
+ * so that a caller can measure its own spending.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString(of = "origin")
+@EqualsAndHashCode(of = "origin")
+public final class QuotaWire implements Wire {
+
+    /**
+     * Requests we never spend, leaving them for emergencies.
+     */
+    public static final long RESERVE = (long) Tv.FIFTY;
+
+    /**
+     * Requests left until the rate limit of Github, or negative if unknown.
+     */
+    private static final AtomicLong REMAINING = new AtomicLong(-1L);
+
+    /**
+     * When the rate limit will be reset, in msec since epoch.
+     */
+    private static final AtomicLong RESET = new AtomicLong();
+
+    /**
+     * Requests sent so far.
+     */
+    private static final AtomicLong SENT = new AtomicLong();
+
+    /**
+     * Requests sent so far by the current thread.
+     */
+    private static final ThreadLocal<AtomicLong> MINE =
+        new ThreadLocal<AtomicLong>() {
+            @Override
+            protected AtomicLong initialValue() {
+                return new AtomicLong();
+            }
+        };
+
+    /**
+     * Requests refused so far, because of the rate limit.
+     */
+    private static final AtomicLong REFUSED = new AtomicLong();
+
+    /**
+     * Original wire.
+     */
+    private final transient Wire origin;
+
+    /**
+     * Public ctor.
+     * @param wire Original wire
+     */
+    public QuotaWire(final Wire wire) {
+        this.origin = wire;
+    }
+
+    /**
+     * Requests left until the rate limit.
+     * @return Requests left, or negative if unknown yet
+     */
+    public static long remaining() {
+        final long left;
+        if (System.currentTimeMillis() >= QuotaWire.RESET.get()) {
+            left = -1L;
+        } else {
+            left = QuotaWire.REMAINING.get();
+        }
+        return left;
+    }
+
+    /**
+     * When the rate limit will be reset.
+     * @return Time in msec since epoch
+     */
+    public static long reset() {
+        return QuotaWire.RESET.get();
+    }
+
+    /**
+     * Requests sent to Github so far, by all wires.
+     * @return Total number of requests
+     */
+    public static long sent() {
+        return QuotaWire.SENT.get();
+    }
+
+    /**
+     * Requests sent to Github so far, by the current thread.
+     * @return Total number of requests
+     */
+    public static long mine() {
+        return QuotaWire.MINE.get().get();
+    }
+
+    /**
+     * Statistics of all wires.
+     * @return Remaining quota, sent and refused requests
+     */
+    public static Map<String, Long> stats() {
+        final Map<String, Long> stats = new TreeMap<String, Long>();
+        stats.put("remaining", QuotaWire.remaining());
+        stats.put("sent", QuotaWire.SENT.get());
+        stats.put("refused", QuotaWire.REFUSED.get());
+        return stats;
+    }
+
+    // @checkstyle ParameterNumberCheck (7 lines)
+    @Override
+    public Response send(final Request req, final String home,
+        final String method,
+        final Collection<Map.Entry<String, String>> headers,
+        final InputStream content) throws IOException {
+        final long left = QuotaWire.remaining();
+        if (left >= 0L && left < QuotaWire.RESERVE) {
+            QuotaWire.REFUSED.incrementAndGet();
+            throw new IOException(
+                String.format(
+                    "Github rate limit: %d request(s) left until %s, %s %s",
+                    left, new Date(QuotaWire.RESET.get()), method, home
+                )
+            );
+        }
+        final Response response = this.origin.send(
+            req, home, method, headers, content
+        );
+        if (response.status() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            QuotaWire.SENT.incrementAndGet();
+            QuotaWire.MINE.get().incrementAndGet();
+        }
+        QuotaWire.update(response);
+        return response;
+    }
+
+    /**
+     * Forget the remaining quota, as if nothing was sent yet.
+     */
+    static void forget() {
+        QuotaWire.REMAINING.set(-1L);
+        QuotaWire.RESET.set(0L);
+    }
+
+    /**
+     * Remember the remaining quota of Github.
+     * @param response Response
+     */
+    private static void update(final Response response) {
+        final Map<String, List<String>> hdrs = response.headers();
+        final List<String> left = hdrs.get("X-RateLimit-Remaining");
+        final List<String> reset = hdrs.get("X-RateLimit-Reset");
+        if (left != null && !left.isEmpty()
+            && reset != null && !reset.isEmpty()) {
+            QuotaWire.RESET.set(
+                TimeUnit.SECONDS.toMillis(Long.parseLong(reset.get(0)))
+            );
+            QuotaWire.REMAINING.set(Long.parseLong(left.get(0)));
+        }
+    }
+
+}
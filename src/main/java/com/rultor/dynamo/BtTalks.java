@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.dynamo;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import com.jcabi.log.Logger;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Talks that collect all changes in memory and write them in one go,
+ * when {@link #flush()} is called.
+ *
+ * <p>Every talk is instantiated only once, no matter how many times
+ * it is retrieved, that's why all agents of a tick see the changes
+ * made by each other. Each talk changed is written by one conditional
+ * update, on flush (see {@link DyTalk}), unless it's flushed earlier,
+ * by an agent with side effects, see {@link com.rultor.agents.Flushes},
+ * or when it's activated or deactivated. A failure to write one talk
+ * doesn't prevent others from being written. Talks that failed are
+ * reported, so that their agents run again, against fresh XML.
+ *
+ * <p>Since changes are written after the agents made them, an agent
+ * may do something outside of the talk, like posting a comment,
+ * and its record may fail to be written. Then the agent runs again and
+ * does it again. Side effects happen at least once, not exactly once.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "origin")
+@EqualsAndHashCode(of = "origin")
+@SuppressWarnings("PMD.TooManyMethods")
+public final class BtTalks implements Talks {
+
+    /**
+     * Original talks.
+     */
+    private final transient Talks origin;
+
+    /**
+     * Talks retrieved so far, by name.
+     */
+    private final transient ConcurrentMap<String, BtTalk> cache =
+        new ConcurrentHashMap<String, BtTalk>(0);
+
+    /**
+     * Ctor.
+     * @param talks Original talks
+     */
+    public BtTalks(final Talks talks) {
+        this.origin = talks;
+    }
+
+    @Override
+    public boolean exists(final long number) {
+        return this.origin.exists(number);
+    }
+
+    @Override
+    public Talk get(final long number) {
+        return this.wrap(this.origin.get(number));
+    }
+
+    @Override
+    public boolean exists(final String name) {
+        return this.origin.exists(name);
+    }
+
+    @Override
+    public Talk get(final String name) {
+        return this.wrap(this.origin.get(name));
+    }
+
+    @Override
+    public void delete(final String name) {
+        this.cache.remove(name);
+        this.origin.delete(name);
+    }
+
+    @Override
+    public void create(final String repo, final String name)
+        throws IOException {
+        this.origin.create(repo, name);
+    }
+
+    @Override
+    public Iterable<Talk> active() {
+        return this.wrap(this.origin.active());
+    }
+
+    @Override
+    public Iterable<Talk> recent() {
+        return this.wrap(this.origin.recent());
+    }
+
+    @Override
+    public Iterable<Talk> siblings(final String repo, final Date since) {
+        return this.wrap(this.origin.siblings(repo, since));
+    }
+
+    /**
+     * Write all changes collected so far.
+     * @return Names of talks that failed to write
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public Collection<String> flush() {
+        final Collection<String> failed = new LinkedList<String>();
+        for (final Map.Entry<String, BtTalk> ent : this.cache.entrySet()) {
+            try {
+                ent.getValue().flush();
+                // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                Logger.warn(
+                    this, "failed to flush %s: %[exception]s",
+                    ent.getKey(), ex
+                );
+                failed.add(ent.getKey());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Wrap them all.
+     * @param talks Talks to wrap
+     * @return Wrapped talks
+     */
+    private Iterable<Talk> wrap(final Iterable<Talk> talks) {
+        return Iterables.transform(
+            talks,
+            new Function<Talk, Talk>() {
+                @Override
+                public Talk apply(final Talk input) {
+                    return BtTalks.this.wrap(input);
+                }
+            }
+        );
+    }
+
+    /**
+     * Wrap one talk, or find it among already retrieved.
+     * @param talk Talk to wrap
+     * @return Wrapped talk
+     */
+    private Talk wrap(final Talk talk) {
+        final String name;
+        try {
+            name = talk.name();
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        this.cache.putIfAbsent(name, new BtTalk(talk));
+        return this.cache.get(name);
+    }
+
+}
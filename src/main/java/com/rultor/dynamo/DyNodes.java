@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.dynamo;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.AttributeUpdates;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.QueryValve;
+import com.jcabi.dynamo.Region;
+import com.jcabi.dynamo.ScanValve;
+import com.rultor.spi.Nodes;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Nodes in Dynamo.
+ *
+ * <p>Every node renews its lease by updating the "alive" attribute
+ * of its own item. A node that didn't do it for {@link #LEASE}
+ * milliseconds is considered dead, and its item is deleted when all
+ * nodes are listed. A node that shuts down deletes its item itself,
+ * so the table contains only live nodes and a few recently dead.
+ *
+ * <p>Claims of talks are kept in the items of the talks, in the "owner"
+ * and "leased" attributes. A claim is taken over by a compare-and-swap:
+ * the item is updated only if both attributes are still the same
+ * as we've read them. A node renews its own claim in one write,
+ * without reading the item.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "region")
+public final class DyNodes implements Nodes {
+
+    /**
+     * Table name.
+     */
+    public static final String TBL = "nodes";
+
+    /**
+     * Name of the node.
+     */
+    public static final String HASH = "node";
+
+    /**
+     * When it was alive last time.
+     */
+    public static final String ATTR_ALIVE = "alive";
+
+    /**
+     * How long a lease lasts, in msec.
+     */
+    public static final long LEASE = TimeUnit.MINUTES.toMillis(2L);
+
+    /**
+     * Region we're in.
+     */
+    private final transient Region region;
+
+    /**
+     * Public ctor.
+     * @param reg Region
+     */
+    public DyNodes(final Region reg) {
+        this.region = reg;
+    }
+
+    @Override
+    public void beat(final String node) throws IOException {
+        this.region.table(DyNodes.TBL).put(
+            new Attributes()
+                .with(DyNodes.HASH, node)
+                .with(DyNodes.ATTR_ALIVE, System.currentTimeMillis())
+        );
+    }
+
+    @Override
+    public void leave(final String node) {
+        Iterables.removeIf(
+            this.region.table(DyNodes.TBL)
+                .frame()
+                .through(new QueryValve().withLimit(1))
+                .where(DyNodes.HASH, node),
+            Predicates.alwaysTrue()
+        );
+    }
+
+    @Override
+    public Collection<String> alive() throws IOException {
+        final long since = System.currentTimeMillis() - DyNodes.LEASE;
+        final Collection<String> nodes = new TreeSet<String>();
+        final Iterator<Item> items = this.region.table(DyNodes.TBL)
+            .frame().through(new ScanValve()).iterator();
+        while (items.hasNext()) {
+            final Item item = items.next();
+            if (Long.parseLong(item.get(DyNodes.ATTR_ALIVE).getN()) > since) {
+                nodes.add(item.get(DyNodes.HASH).getS());
+            } else {
+                items.remove();
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public boolean claim(final String node, final String talk)
+        throws IOException {
+        final String table = this.region.table(DyTalks.TBL).name();
+        final Map<String, AttributeValue> key = Collections.singletonMap(
+            DyTalks.HASH, new AttributeValue(talk)
+        );
+        final AmazonDynamoDB aws = this.region.aws();
+        boolean claimed;
+        try {
+            final Map<String, ExpectedAttributeValue> mine =
+                DyNodes.expected(talk);
+            mine.put(
+                DyTalks.ATTR_OWNER,
+                new ExpectedAttributeValue(new AttributeValue(node))
+            );
+            claimed = DyNodes.update(aws, table, key, node, mine);
+            if (!claimed) {
+                final Map<String, AttributeValue> attrs = aws.getItem(
+                    new GetItemRequest()
+                        .withTableName(table)
+                        .withKey(key)
+                        .withAttributesToGet(
+                            DyTalks.ATTR_OWNER, DyTalks.ATTR_LEASED
+                        )
+                        .withConsistentRead(true)
+                ).getItem();
+                if (attrs != null && DyNodes.expired(attrs)) {
+                    final Map<String, ExpectedAttributeValue> seen =
+                        DyNodes.expected(talk);
+                    seen.put(
+                        DyTalks.ATTR_OWNER,
+                        DyNodes.same(attrs, DyTalks.ATTR_OWNER)
+                    );
+                    seen.put(
+                        DyTalks.ATTR_LEASED,
+                        DyNodes.same(attrs, DyTalks.ATTR_LEASED)
+                    );
+                    claimed = DyNodes.update(aws, table, key, node, seen);
+                }
+            }
+        } catch (final AmazonClientException ex) {
+            throw new IOException(ex);
+        } finally {
+            aws.shutdown();
+        }
+        return claimed;
+    }
+
+    /**
+     * The claim is absent or expired?
+     * @param attrs Attributes of the talk
+     * @return TRUE if it can be taken over
+     */
+    private static boolean expired(final Map<String, AttributeValue> attrs) {
+        final AttributeValue leased = attrs.get(DyTalks.ATTR_LEASED);
+        return leased == null
+            || Long.parseLong(leased.getN()) < System.currentTimeMillis();
+    }
+
+    /**
+     * Expect the attribute to be the same as we've read it.
+     * @param attrs Attributes we've read
+     * @param attr Name of the attribute
+     * @return Expectation
+     */
+    private static ExpectedAttributeValue same(
+        final Map<String, AttributeValue> attrs, final String attr) {
+        final ExpectedAttributeValue same;
+        if (attrs.containsKey(attr)) {
+            same = new ExpectedAttributeValue(attrs.get(attr));
+        } else {
+            same = new ExpectedAttributeValue(false);
+        }
+        return same;
+    }
+
+    /**
+     * Expectations, which every claim starts with: the talk has to exist,
+     * so that a claim never creates an item.
+     * @param talk Name of the talk
+     * @return Expectations, mutable
+     */
+    private static Map<String, ExpectedAttributeValue> expected(
+        final String talk) {
+        final Map<String, ExpectedAttributeValue> expected =
+            new HashMap<String, ExpectedAttributeValue>(Tv.THREE);
+        expected.put(
+            DyTalks.HASH,
+            new ExpectedAttributeValue(new AttributeValue(talk))
+        );
+        return expected;
+    }
+
+    /**
+     * Write the claim of the node, if expectations are met.
+     * @param aws AWS client
+     * @param table Name of the table with talks
+     * @param key Key of the talk
+     * @param node Name of the node
+     * @param expected Expectations
+     * @return TRUE if written
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static boolean update(final AmazonDynamoDB aws, final String table,
+        final Map<String, AttributeValue> key, final String node,
+        final Map<String, ExpectedAttributeValue> expected) {
+        boolean updated = true;
+        try {
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(table)
+                    .withKey(key)
+                    .withAttributeUpdates(
+                        new AttributeUpdates()
+                            .with(DyTalks.ATTR_OWNER, node)
+                            .with(
+                                DyTalks.ATTR_LEASED,
+                                System.currentTimeMillis() + DyNodes.LEASE
+                            )
+                    )
+                    .withExpected(expected)
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            updated = false;
+        }
+        return updated;
+    }
+
+}
@@ -29,20 +29,39 @@
  */
 package com.rultor.dynamo;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Tv;
 import com.jcabi.dynamo.AttributeUpdates;
 import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.Table;
+import com.jcabi.log.Logger;
 import com.jcabi.xml.StrictXML;
 import com.jcabi.xml.XML;
 import com.jcabi.xml.XMLDocument;
 import com.jcabi.xml.XSLDocument;
 import com.rultor.spi.Talk;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xembly.Directive;
 import org.xembly.ImpossibleModificationException;
@@ -51,6 +70,26 @@ import org.xembly.Xembler;
 /**
  * Talk in Dynamo.
  *
+ * <p>Modifications are written only when they actually change the XML.
+ * Every write increments the "version" attribute of the item and is
+ * conditional on the version we've seen, which makes it safe to run a few
+ * Rultor nodes against the same table. XML and version are always read
+ * together, by one consistent read, and {@link #read()} reports the
+ * version in the "version" attribute of the root element. Directives
+ * that set this attribute back, as {@link com.rultor.agents.Draft} does,
+ * are applied only to the same version of the talk they were made for.
+ * If the talk is at another version already, or is modified by someone
+ * else while we're writing, the modification is rejected with
+ * {@link DyTalk.ConflictException}: directives were made out of
+ * a document which is not there anymore, and replaying them on the new
+ * one may duplicate elements. The agents have to run again, against
+ * the new XML.
+ *
+ * <p>Upgrade and validation of XML are expensive, that's why their
+ * results are cached by SHA-256 of the stored XML. Documents are
+ * immutable, and every call to {@link XML#node()} returns a copy,
+ * so it is safe to share them between talks and threads.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -59,6 +98,20 @@ import org.xembly.Xembler;
 @ToString
 @EqualsAndHashCode(of = "item")
 public final class DyTalk implements Talk {
+
+    /**
+     * Attribute of the root element with the version of the talk.
+     */
+    private static final String VERSION = "version";
+
+    /**
+     * Upgraded and validated documents, by hash of their stored XML.
+     */
+    private static final Cache<HashCode, XML> DOMS = CacheBuilder.newBuilder()
+        .maximumSize((long) Tv.FIVE * Tv.HUNDRED)
+        .expireAfterAccess(1L, TimeUnit.HOURS)
+        .build();
+
     /**
      * Item.
      */
@@ -91,41 +144,35 @@ public final class DyTalk implements Talk {
 
     @Override
     public XML read() throws IOException {
-        return new StrictXML(
-            Talk.UPGRADE.transform(
-                new XMLDocument(this.item.get(DyTalks.ATTR_XML).getS())
-            ),
-            Talk.SCHEMA
+        final Map<String, AttributeValue> attrs = this.stored();
+        final Node node = DyTalk.parse(
+            attrs.get(DyTalks.ATTR_XML).getS()
+        ).node();
+        Document.class.cast(node).getDocumentElement().setAttribute(
+            DyTalk.VERSION, DyTalk.version(attrs)
         );
+        return new XMLDocument(node);
     }
 
     @Override
     public void modify(final Iterable<Directive> dirs) throws IOException {
         if (!Iterables.isEmpty(dirs)) {
-            final XML xml = this.read();
-            final Node node = xml.node();
-            try {
-                new Xembler(dirs).apply(node);
-            } catch (final ImpossibleModificationException ex) {
-                throw new IllegalStateException(
+            final Map<String, AttributeValue> attrs = this.stored();
+            final String before = attrs.get(DyTalks.ATTR_XML).getS();
+            final String after = DyTalk.apply(
+                before, DyTalk.version(attrs), dirs
+            );
+            if (!after.equals(before)
+                && !this.update(after, attrs.get(DyTalks.ATTR_VERSION), true)) {
+                Logger.info(
+                    this, "talk %s was modified concurrently", this.name()
+                );
+                throw new DyTalk.ConflictException(
                     String.format(
-                        "failed to apply %s to %s",
-                        dirs.toString(), xml
-                    ),
-                    ex
+                        "talk %s was modified by someone else", this.name()
+                    )
                 );
             }
-            final String body = XSLDocument.STRIP.transform(
-                new StrictXML(new XMLDocument(node), Talk.SCHEMA)
-            ).toString();
-            if (body.length() > Tv.FIFTY * Tv.THOUSAND) {
-                throw new IllegalArgumentException("XML is too big");
-            }
-            this.item.put(
-                new AttributeUpdates()
-                    .with(DyTalks.ATTR_XML, body)
-                    .with(DyTalks.ATTR_UPDATED, System.currentTimeMillis())
-            );
         }
     }
 
@@ -138,4 +185,219 @@ public final class DyTalk implements Talk {
         );
     }
 
+    /**
+     * Upgrade the stored XML to the current schema, if it's not current.
+     *
+     * <p>Unlike {@link #modify(Iterable)}, it doesn't change the time of
+     * update of the talk, since nothing happened to the talk itself.
+     *
+     * @return TRUE if upgraded, FALSE if it's current or was modified
+     *  by someone else meanwhile
+     * @throws IOException If fails
+     * @since 2.0
+     */
+    boolean upgrade() throws IOException {
+        final Map<String, AttributeValue> attrs = this.stored();
+        final String before = attrs.get(DyTalks.ATTR_XML).getS();
+        return !Talk.UPGRADE.isCurrent(new XMLDocument(before))
+            && this.update(
+                DyTalk.apply(
+                    before, DyTalk.version(attrs),
+                    Collections.<Directive>emptyList()
+                ),
+                attrs.get(DyTalks.ATTR_VERSION), false
+            );
+    }
+
+    /**
+     * Read XML and version of the talk together, directly from the table.
+     * @return Attributes
+     * @throws IOException If fails
+     */
+    private Map<String, AttributeValue> stored() throws IOException {
+        final Table table = this.item.frame().table();
+        final AmazonDynamoDB aws = table.region().aws();
+        final Map<String, AttributeValue> attrs;
+        try {
+            attrs = aws.getItem(
+                new GetItemRequest()
+                    .withTableName(table.name())
+                    .withKey(this.key())
+                    .withAttributesToGet(
+                        DyTalks.ATTR_XML, DyTalks.ATTR_VERSION
+                    )
+                    .withConsistentRead(true)
+            ).getItem();
+        } catch (final AmazonClientException ex) {
+            throw new IOException(ex);
+        } finally {
+            aws.shutdown();
+        }
+        if (attrs == null) {
+            throw new IllegalStateException(
+                String.format("talk %s is gone", this.name())
+            );
+        }
+        return attrs;
+    }
+
+    /**
+     * Version of the talk, as it's reported in XML.
+     * @param attrs Attributes of the item
+     * @return Version or "0" if it's absent
+     */
+    private static String version(final Map<String, AttributeValue> attrs) {
+        final String version;
+        if (attrs.containsKey(DyTalks.ATTR_VERSION)) {
+            version = attrs.get(DyTalks.ATTR_VERSION).getN();
+        } else {
+            version = "0";
+        }
+        return version;
+    }
+
+    /**
+     * Save new XML, only if the version of the item is still the same.
+     * @param xml New XML to save
+     * @param version Version we've seen or NULL if it was absent
+     * @param touch TRUE if the time of update has to be changed too
+     * @return TRUE if saved, FALSE if somebody else modified it
+     * @throws IOException If fails
+     */
+    private boolean update(final String xml, final AttributeValue version,
+        final boolean touch) throws IOException {
+        final ExpectedAttributeValue expected;
+        final long next;
+        if (version == null) {
+            expected = new ExpectedAttributeValue(false);
+            next = 1L;
+        } else {
+            expected = new ExpectedAttributeValue(version);
+            next = Long.parseLong(version.getN()) + 1L;
+        }
+        AttributeUpdates updates = new AttributeUpdates()
+            .with(DyTalks.ATTR_XML, xml)
+            .with(DyTalks.ATTR_VERSION, next);
+        if (touch) {
+            updates = updates.with(
+                DyTalks.ATTR_UPDATED, System.currentTimeMillis()
+            );
+        }
+        final Table table = this.item.frame().table();
+        final AmazonDynamoDB aws = table.region().aws();
+        boolean saved = true;
+        try {
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(table.name())
+                    .withKey(this.key())
+                    .withAttributeUpdates(updates)
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyTalks.ATTR_VERSION, expected
+                        )
+                    )
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            saved = false;
+        } catch (final AmazonClientException ex) {
+            throw new IOException(ex);
+        } finally {
+            aws.shutdown();
+        }
+        return saved;
+    }
+
+    /**
+     * Primary key of the item.
+     * @return Key
+     * @throws IOException If fails
+     */
+    private Map<String, AttributeValue> key() throws IOException {
+        return Collections.singletonMap(
+            DyTalks.HASH, new AttributeValue(this.name())
+        );
+    }
+
+    /**
+     * Apply directives to the XML.
+     * @param xml Stored XML
+     * @param version Stored version
+     * @param dirs Directives
+     * @return New XML, stripped and ready to be stored
+     * @throws DyTalk.ConflictException If directives were made for
+     *  another version
+     */
+    private static String apply(final String xml, final String version,
+        final Iterable<Directive> dirs) throws DyTalk.ConflictException {
+        final XML before = DyTalk.parse(xml);
+        final Node node = before.node();
+        final Element root = Document.class.cast(node).getDocumentElement();
+        root.setAttribute(DyTalk.VERSION, version);
+        try {
+            new Xembler(dirs).apply(node);
+        } catch (final ImpossibleModificationException ex) {
+            throw new IllegalStateException(
+                String.format(
+                    "failed to apply %s to %s",
+                    dirs.toString(), before
+                ),
+                ex
+            );
+        }
+        final String seen = root.getAttribute(DyTalk.VERSION);
+        if (!seen.equals(version)) {
+            throw new DyTalk.ConflictException(
+                String.format(
+                    "directives were made for version %s, but it's %s now",
+                    seen, version
+                )
+            );
+        }
+        root.removeAttribute(DyTalk.VERSION);
+        final String after = XSLDocument.STRIP.transform(
+            new StrictXML(new XMLDocument(node), Talk.SCHEMA)
+        ).toString();
+        if (after.length() > Tv.FIFTY * Tv.THOUSAND) {
+            throw new IllegalArgumentException("XML is too big");
+        }
+        return after;
+    }
+
+    /**
+     * The talk was modified by someone else, after we've read it.
+     */
+    public static final class ConflictException extends IOException {
+        /**
+         * Serialization marker.
+         */
+        private static final long serialVersionUID = -4512639217854217634L;
+        /**
+         * Ctor.
+         * @param cause Cause of the problem
+         */
+        public ConflictException(final String cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Parse, upgrade and validate XML of the talk, or take it
+     * from the cache, if the same XML was parsed recently.
+     * @param xml Stored XML
+     * @return XML
+     */
+    private static XML parse(final String xml) {
+        final HashCode key = Hashing.sha256().hashString(xml, Charsets.UTF_8);
+        XML doc = DyTalk.DOMS.getIfPresent(key);
+        if (doc == null) {
+            doc = new StrictXML(
+                Talk.UPGRADE.transform(new XMLDocument(xml)),
+                Talk.SCHEMA
+            );
+            DyTalk.DOMS.put(key, doc);
+        }
+        return doc;
+    }
+
 }
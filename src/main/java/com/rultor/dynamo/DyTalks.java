@@ -30,9 +30,14 @@
 package com.rultor.dynamo;
 
 import co.stateful.Counter;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import com.amazonaws.services.dynamodbv2.model.Select;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
@@ -48,6 +53,7 @@ import com.jcabi.dynamo.Region;
 import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -55,6 +61,11 @@ import lombok.ToString;
 /**
  * Talks in Dynamo.
  *
+ * <p>A new talk is put only if there is no talk with this name yet,
+ * since a few nodes may create the same talk at the same time, for
+ * example the leader and a webhook, and the second one must not
+ * overwrite the first one with a new number.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -121,6 +132,24 @@ public final class DyTalks implements Talks {
      */
     public static final String ATTR_UPDATED = "updated";
 
+    /**
+     * Version of the XML, incremented on every modification.
+     * @since 2.0
+     */
+    public static final String ATTR_VERSION = "version";
+
+    /**
+     * Node that processes it, see {@link DyNodes#claim(String, String)}.
+     * @since 2.0
+     */
+    public static final String ATTR_OWNER = "owner";
+
+    /**
+     * When the claim of its owner expires, in msec.
+     * @since 2.0
+     */
+    public static final String ATTR_LEASED = "leased";
+
     /**
      * Region we're in.
      */
@@ -212,18 +241,45 @@ public final class DyTalks implements Talks {
     public void create(final String repo, final String name)
         throws IOException {
         final long number = this.counter.incrementAndGet(1L);
-        this.region.table(DyTalks.TBL).put(
-            new Attributes()
-                .with(DyTalks.HASH, name)
-                .with(DyTalks.ATTR_ACTIVE, Boolean.toString(true))
-                .with(DyTalks.ATTR_REPO, repo)
-                .with(DyTalks.ATTR_NUMBER, number)
-                .with(DyTalks.ATTR_UPDATED, System.currentTimeMillis())
-                .with(
-                    DyTalks.ATTR_XML,
-                    String.format("<talk name='%s' number='%d'/>", name, number)
-                )
-        );
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            aws.putItem(
+                new PutItemRequest()
+                    .withTableName(this.region.table(DyTalks.TBL).name())
+                    .withItem(
+                        new Attributes()
+                            .with(DyTalks.HASH, name)
+                            .with(DyTalks.ATTR_ACTIVE, Boolean.toString(true))
+                            .with(DyTalks.ATTR_REPO, repo)
+                            .with(DyTalks.ATTR_NUMBER, number)
+                            .with(
+                                DyTalks.ATTR_UPDATED,
+                                System.currentTimeMillis()
+                            )
+                            .with(DyTalks.ATTR_VERSION, 0L)
+                            .with(
+                                DyTalks.ATTR_XML,
+                                String.format(
+                                    "<talk name='%s' number='%d'/>",
+                                    name, number
+                                )
+                            )
+                    )
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyTalks.HASH, new ExpectedAttributeValue(false)
+                        )
+                    )
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            throw new IllegalStateException(
+                String.format("talk %s exists already", name), ex
+            );
+        } catch (final AmazonClientException ex) {
+            throw new IOException(ex);
+        } finally {
+            aws.shutdown();
+        }
     }
 
     @Override
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.dynamo;
+
+import co.stateful.Counter;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.Region;
+import com.jcabi.dynamo.ScanValve;
+import com.jcabi.log.Logger;
+import com.jcabi.xml.XMLDocument;
+import com.rultor.spi.Talk;
+import java.io.IOException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Migration of all talks in Dynamo to the current schema.
+ *
+ * <p>It scans the entire table once and rewrites talks that are not
+ * current yet, see {@link com.rultor.spi.Upgrade}. Talks that are
+ * current are only read, and talks modified by somebody else
+ * meanwhile are upgraded by {@link DyTalk} anyway. Only XML and its
+ * version are rewritten, the time of update stays as is, since it
+ * orders talks in indexes and in the history.
+ *
+ * <p>When all talks are upgraded, the number of the schema is saved
+ * into a counter, and next time, on this or any other node, the scan
+ * is skipped, until the schema changes again. Nodes that start at
+ * the same time may scan the table together, which is harmless.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "region")
+public final class Migration implements Runnable {
+
+    /**
+     * Region we're in.
+     */
+    private final transient Region region;
+
+    /**
+     * Number of the schema all talks were upgraded to.
+     */
+    private final transient Counter schema;
+
+    /**
+     * Public ctor.
+     * @param reg Region
+     * @param cnt Counter with the number of the schema, all talks
+     *  were upgraded to
+     */
+    public Migration(final Region reg, final Counter cnt) {
+        this.region = reg;
+        this.schema = cnt;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (this.schema.incrementAndGet(0L) < Talk.UPGRADE.current()) {
+                this.migrate();
+            } else {
+                Logger.info(
+                    this, "all talks are at schema #%d already",
+                    Talk.UPGRADE.current()
+                );
+            }
+        } catch (final IOException ex) {
+            Logger.warn(this, "failed to migrate: %[exception]s", ex);
+        }
+    }
+
+    /**
+     * Scan the table and upgrade all talks.
+     * @throws IOException If fails
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void migrate() throws IOException {
+        final long start = System.currentTimeMillis();
+        int total = 0;
+        int upgraded = 0;
+        int failed = 0;
+        for (final Item item : this.region.table(DyTalks.TBL)
+            .frame().through(new ScanValve())) {
+            ++total;
+            try {
+                if (!Talk.UPGRADE.isCurrent(
+                    new XMLDocument(item.get(DyTalks.ATTR_XML).getS())
+                ) && new DyTalk(item).upgrade()) {
+                    ++upgraded;
+                }
+                // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                ++failed;
+                Logger.warn(this, "failed to upgrade: %[exception]s", ex);
+            }
+        }
+        if (failed == 0) {
+            this.schema.set(Talk.UPGRADE.current());
+        }
+        Logger.info(
+            this,
+            "%d talk(s) of %d upgraded to schema #%d in %[ms]s, %d failed",
+            upgraded, total, Talk.UPGRADE.current(),
+            System.currentTimeMillis() - start, failed
+        );
+    }
+
+}
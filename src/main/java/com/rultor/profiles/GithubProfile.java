@@ -30,11 +30,15 @@
 package com.rultor.profiles;
 
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
 import com.jcabi.github.Content;
 import com.jcabi.github.Coordinates;
 import com.jcabi.github.Github;
+import com.jcabi.github.Reference;
 import com.jcabi.github.Repo;
 import com.jcabi.xml.XML;
 import com.rultor.agents.github.TalkIssues;
@@ -47,8 +51,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.json.Json;
+import javax.json.JsonObject;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.codec.binary.Base64;
@@ -61,6 +68,14 @@ import org.apache.commons.lang3.CharEncoding;
  * it is obvious that the configuration of the repository is stored
  * in Github.
  *
+ * <p>The configuration is parsed once per version of {@code .rultor.yml}
+ * and kept in memory, shared by all profiles, together with the list
+ * of its assets. The head of the branch is checked once a minute, and
+ * only when it changes the file is downloaded again. When its blob SHA
+ * didn't change, the parsed configuration is reused. A broken
+ * configuration is remembered the same way, together with its error.
+ * Nothing is cached when the branch doesn't exist.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -88,6 +103,33 @@ final class GithubProfile implements Profile {
         "([a-zA-Z0-9][a-zA-Z0-9-]*/[a-zA-Z_0-9.-]+)#(.+)"
     );
 
+    /**
+     * Heads of branches, by repo, for a short time.
+     */
+    private static final Cache<String, String> HEADS =
+        CacheBuilder.newBuilder()
+            .maximumSize((long) Tv.THOUSAND)
+            .expireAfterWrite(1L, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Blob SHAs of configurations, by repo and head of the branch.
+     */
+    private static final Cache<String, String> BLOBS =
+        CacheBuilder.newBuilder()
+            .maximumSize((long) Tv.THOUSAND)
+            .expireAfterAccess(1L, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * Parsed configurations, by repo and blob SHA.
+     */
+    private static final Cache<String, GithubProfile.Config> CONFIGS =
+        CacheBuilder.newBuilder()
+            .maximumSize((long) Tv.THOUSAND)
+            .expireAfterAccess(1L, TimeUnit.HOURS)
+            .build();
+
     /**
      * Repo.
      */
@@ -118,23 +160,101 @@ final class GithubProfile implements Profile {
 
     @Override
     public XML read() throws IOException {
-        return new YamlXML(this.yml()).get();
+        return this.config(this.head()).xml();
     }
 
     @Override
     public Map<String, InputStream> assets() throws IOException {
         final ImmutableMap.Builder<String, InputStream> assets =
             new ImmutableMap.Builder<String, InputStream>();
-        final XML xml = this.read();
-        for (final XML asset : xml.nodes("/p/entry[@key='assets']/entry")) {
-            assets.put(
-                asset.xpath("@key").get(0),
-                this.asset(asset.xpath("text()").get(0))
-            );
+        for (final Map.Entry<String, String> asset
+            : this.config(this.head()).assets().entrySet()) {
+            assets.put(asset.getKey(), this.asset(asset.getValue()));
         }
         return assets.build();
     }
 
+    /**
+     * Parsed configuration, from cache if possible.
+     * @param head Head of the branch, or empty if unknown
+     * @return Configuration
+     * @throws IOException If fails
+     */
+    GithubProfile.Config config(final String head) throws IOException {
+        final String key = String.format("%s@%s", this.name(), head);
+        GithubProfile.Config config = null;
+        if (!head.isEmpty()) {
+            final String blob = GithubProfile.BLOBS.getIfPresent(key);
+            if (blob != null) {
+                config = GithubProfile.CONFIGS.getIfPresent(
+                    String.format("%s:%s", this.name(), blob)
+                );
+            }
+        }
+        if (config == null) {
+            final JsonObject json = this.file();
+            final String blob = String.format(
+                "%s:%s", this.name(), json.getString("sha", "")
+            );
+            config = GithubProfile.CONFIGS.getIfPresent(blob);
+            if (config == null) {
+                config = this.parse(json);
+            }
+            if (!head.isEmpty()) {
+                GithubProfile.CONFIGS.put(blob, config);
+                GithubProfile.BLOBS.put(key, json.getString("sha", ""));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Parse the configuration.
+     * @param json JSON of the file
+     * @return Configuration, maybe broken
+     * @throws IOException If fails
+     */
+    private GithubProfile.Config parse(final JsonObject json)
+        throws IOException {
+        GithubProfile.Config config;
+        try {
+            config = new GithubProfile.Config(
+                new YamlXML(this.yml(json)).get()
+            );
+        } catch (final Profile.ConfigException ex) {
+            config = new GithubProfile.Config(ex.getLocalizedMessage());
+        }
+        return config;
+    }
+
+    /**
+     * Head of the branch, if it's known.
+     *
+     * <p>The branch is fetched by its own reference, in one request,
+     * which is answered with 304 when the head didn't move. When there
+     * is no such branch Github answers with 404 and jcabi-github fails
+     * with an {@link AssertionError}, the head is unknown then.
+     *
+     * @return SHA of the head commit or empty if unknown
+     * @throws IOException If fails
+     */
+    private String head() throws IOException {
+        final String name = this.name();
+        String head = GithubProfile.HEADS.getIfPresent(name);
+        if (head == null) {
+            final Reference ref = this.repo.git().references().get(
+                String.format("refs/heads/%s", GithubProfile.BRANCH)
+            );
+            try {
+                head = ref.json().getJsonObject("object").getString("sha");
+            } catch (final AssertionError ex) {
+                head = "";
+            }
+            GithubProfile.HEADS.put(name, head);
+        }
+        return head;
+    }
+
     /**
      * Convert address to input stream.
      * @param path Path of the asset, e.g. "yegor/rultor#pom.xml"
@@ -210,23 +330,32 @@ final class GithubProfile implements Profile {
     }
 
     /**
-     * Get .rultor.yml file.
-     * @return Its content
+     * Get .rultor.yml file, as JSON returned by Github.
+     * @return Its JSON, empty if the file is absent
      * @throws IOException If fails
      */
-    private String yml() throws IOException {
-        final String yml;
+    private JsonObject file() throws IOException {
+        final JsonObject json;
         if (this.repo.contents()
             .exists(GithubProfile.FILE, GithubProfile.BRANCH)) {
-            yml = new String(
-                new Content.Smart(
-                    this.repo.contents().get(GithubProfile.FILE)
-                ).decoded(),
-                CharEncoding.UTF_8
-            );
+            json = this.repo.contents().get(GithubProfile.FILE).json();
         } else {
-            yml = "";
+            json = Json.createObjectBuilder().build();
         }
+        return json;
+    }
+
+    /**
+     * Get content of .rultor.yml file and validate it.
+     * @param json JSON of the file
+     * @return Its content
+     * @throws IOException If fails
+     */
+    private String yml(final JsonObject json) throws IOException {
+        final String yml = new String(
+            Base64.decodeBase64(json.getString("content", "")),
+            CharEncoding.UTF_8
+        );
         final List<String> msg = this.validate(yml);
         if (!msg.isEmpty()) {
             throw new Profile.ConfigException(
@@ -253,4 +382,76 @@ final class GithubProfile implements Profile {
     private List<String> validate(final String yml) {
         return Collections.emptyList();
     }
+
+    /**
+     * Parsed configuration, or the reason why it can't be parsed.
+     */
+    static final class Config {
+        /**
+         * XML of the configuration, NULL if it's broken.
+         */
+        private final transient XML doc;
+        /**
+         * Paths of assets, by their names.
+         */
+        private final transient Map<String, String> paths;
+        /**
+         * Why the configuration is broken, NULL if it's not.
+         */
+        private final transient String error;
+        /**
+         * Ctor.
+         * @param msg Why the configuration is broken
+         */
+        Config(final String msg) {
+            this.doc = null;
+            this.paths = Collections.emptyMap();
+            this.error = msg;
+        }
+        /**
+         * Ctor.
+         * @param xml XML of the configuration
+         */
+        Config(final XML xml) {
+            this.doc = xml;
+            this.error = null;
+            final ImmutableMap.Builder<String, String> all =
+                new ImmutableMap.Builder<String, String>();
+            for (final XML asset
+                : xml.nodes("/p/entry[@key='assets']/entry")) {
+                all.put(
+                    asset.xpath("@key").get(0),
+                    asset.xpath("text()").get(0)
+                );
+            }
+            this.paths = all.build();
+        }
+        /**
+         * XML of the configuration.
+         * @return XML
+         * @throws Profile.ConfigException If it's broken
+         */
+        public XML xml() throws Profile.ConfigException {
+            this.check();
+            return this.doc;
+        }
+        /**
+         * Paths of assets, by their names.
+         * @return Paths
+         * @throws Profile.ConfigException If it's broken
+         */
+        public Map<String, String> assets() throws Profile.ConfigException {
+            this.check();
+            return this.paths;
+        }
+        /**
+         * Fail if the configuration is broken.
+         * @throws Profile.ConfigException If it's broken
+         */
+        private void check() throws Profile.ConfigException {
+            if (this.error != null) {
+                throw new Profile.ConfigException(this.error);
+            }
+        }
+    }
 }
@@ -35,6 +35,8 @@ import com.jcabi.github.Github;
 import com.jcabi.github.RtGithub;
 import com.jcabi.http.wire.RetryWire;
 import com.jcabi.manifests.Manifests;
+import com.rultor.cached.EtagWire;
+import com.rultor.cached.QuotaWire;
 import com.rultor.spi.Profile;
 import com.rultor.spi.Talk;
 import java.io.IOException;
@@ -78,7 +80,10 @@ public final class Profiles {
         return new RtGithub(
             new RtGithub(
                 Manifests.read("Rultor-GithubToken")
-            ).entry().through(RetryWire.class)
+            ).entry()
+                .through(RetryWire.class)
+                .through(QuotaWire.class)
+                .through(EtagWire.class)
         );
     }
 
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.spi;
+
+import com.jcabi.aspects.Immutable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Rultor nodes working together against the same talks.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+public interface Nodes {
+
+    /**
+     * Report that this node is alive, and renew its lease.
+     * @param node Unique name of the node
+     * @throws IOException If fails
+     */
+    void beat(String node) throws IOException;
+
+    /**
+     * Report that this node is shutting down, and forget it.
+     * @param node Unique name of the node
+     * @throws IOException If fails
+     */
+    void leave(String node) throws IOException;
+
+    /**
+     * Names of all nodes alive, with valid leases.
+     * @return Names of nodes
+     * @throws IOException If fails
+     */
+    Collection<String> alive() throws IOException;
+
+    /**
+     * Claim the talk for this node, before processing it.
+     *
+     * <p>Nodes may disagree on who owns a talk for a while, when one of
+     * them joins or dies. The claim makes sure that only one of them
+     * processes the talk and causes its side effects. The claim lasts
+     * as long as the lease of a node and is renewed every time the talk
+     * is claimed again by the same node.
+     *
+     * @param node Unique name of the node
+     * @param talk Name of the talk
+     * @return TRUE if the talk is claimed by this node, FALSE if another
+     *  node holds the claim
+     * @throws IOException If fails
+     */
+    boolean claim(String node, String talk) throws IOException;
+
+    /**
+     * One node, which is alone.
+     */
+    @Immutable
+    @ToString
+    @EqualsAndHashCode(of = "name")
+    final class Solo implements Nodes {
+        /**
+         * Name of the node.
+         */
+        private final transient String name;
+        /**
+         * Ctor.
+         * @param node Name of the node
+         */
+        public Solo(final String node) {
+            this.name = node;
+        }
+        @Override
+        public void beat(final String node) {
+            // nothing to do
+        }
+        @Override
+        public void leave(final String node) {
+            // nothing to do
+        }
+        @Override
+        public Collection<String> alive() {
+            return Collections.singleton(this.name);
+        }
+        @Override
+        public boolean claim(final String node, final String talk) {
+            return true;
+        }
+    }
+
+}
@@ -29,6 +29,9 @@
  */
 package com.rultor.spi;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Pulse.
  *
@@ -60,6 +63,10 @@ public interface Pulse {
          * Talks processed or -1.
          */
         private final transient int talks;
+        /**
+         * Milliseconds spent per talk, by talk name.
+         */
+        private final transient Map<String, Long> msecs;
         /**
          * Ctor.
          * @param date When
@@ -68,9 +75,23 @@ public interface Pulse {
          */
         public Tick(final long date, final long duration,
             final int total) {
+            this(date, duration, total, Collections.<String, Long>emptyMap());
+        }
+        /**
+         * Ctor.
+         * @param date When
+         * @param duration Duration in msec
+         * @param total Total processed or negative if failed
+         * @param timings Milliseconds spent per talk
+         * @since 2.0
+         * @checkstyle ParameterNumberCheck (4 lines)
+         */
+        public Tick(final long date, final long duration,
+            final int total, final Map<String, Long> timings) {
             this.when = date;
             this.msec = duration;
             this.talks = total;
+            this.msecs = Collections.unmodifiableMap(timings);
         }
         /**
          * Time of start.
@@ -93,6 +114,14 @@ public interface Pulse {
         public int total() {
             return this.talks;
         }
+        /**
+         * Milliseconds spent on each talk, by talk name.
+         * @return Timings
+         * @since 2.0
+         */
+        public Map<String, Long> timings() {
+            return this.msecs;
+        }
     }
 
 }
@@ -35,12 +35,9 @@ import com.jcabi.xml.XML;
 import com.jcabi.xml.XMLDocument;
 import com.jcabi.xml.XSD;
 import com.jcabi.xml.XSDDocument;
-import com.jcabi.xml.XSL;
-import com.jcabi.xml.XSLChain;
 import com.jcabi.xml.XSLDocument;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Date;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.CharEncoding;
@@ -73,19 +70,20 @@ public interface Talk {
     );
 
     /**
-     * Upgrade XSL.
+     * Upgrade, stage by stage.
+     *
+     * <p>New stages must be added to the end of the list, since their
+     * positions are stored in talks, see {@link Upgrade}.
      */
-    XSL UPGRADE = new XSLChain(
-        Arrays.asList(
-            XSLDocument.make(
-                Talk.class.getResourceAsStream(
-                    "upgrade/001-talks.xsl"
-                )
-            ),
-            XSLDocument.make(
-                Talk.class.getResourceAsStream(
-                    "upgrade/002-public-attribute.xsl"
-                )
+    Upgrade UPGRADE = new Upgrade(
+        XSLDocument.make(
+            Talk.class.getResourceAsStream(
+                "upgrade/001-talks.xsl"
+            )
+        ),
+        XSLDocument.make(
+            Talk.class.getResourceAsStream(
+                "upgrade/002-public-attribute.xsl"
             )
         )
     );
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.spi;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.immutable.Array;
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import com.jcabi.xml.XSL;
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.w3c.dom.Node;
+import org.xembly.Directives;
+import org.xembly.Xembler;
+
+/**
+ * Upgrade of talk XML, stage by stage.
+ *
+ * <p>The number of stages already applied to a talk is kept in
+ * its "schema" attribute. Only stages the document is missing are
+ * applied, and a document which is already current is returned
+ * as is, without any XSL transformations.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "stages")
+public final class Upgrade {
+
+    /**
+     * Stages, in order.
+     */
+    private final transient Array<XSL> stages;
+
+    /**
+     * Ctor.
+     * @param xsls Stages, in order
+     */
+    public Upgrade(final XSL... xsls) {
+        this.stages = new Array<XSL>(xsls);
+    }
+
+    /**
+     * Current version of the schema.
+     * @return Version
+     */
+    public int current() {
+        return this.stages.size();
+    }
+
+    /**
+     * Is this XML current?
+     * @param xml The XML
+     * @return TRUE if no stages are missing
+     */
+    public boolean isCurrent(final XML xml) {
+        return Upgrade.version(xml) >= this.current();
+    }
+
+    /**
+     * Apply missing stages.
+     * @param xml The XML
+     * @return Upgraded XML
+     */
+    public XML transform(final XML xml) {
+        final int version = Upgrade.version(xml);
+        XML doc = xml;
+        if (version < this.current()) {
+            for (int idx = version; idx < this.current(); ++idx) {
+                doc = this.stages.get(idx).transform(doc);
+            }
+            final Node node = doc.node();
+            new Xembler(
+                new Directives().xpath("/talk").attr(
+                    "schema", Integer.toString(this.current())
+                )
+            ).applyQuietly(node);
+            doc = new XMLDocument(node);
+        }
+        return doc;
+    }
+
+    /**
+     * Version of schema of the XML.
+     * @param xml The XML
+     * @return Version, zero if it's absent
+     */
+    private static int version(final XML xml) {
+        final List<String> attrs = xml.xpath("/talk/@schema");
+        final int version;
+        if (attrs.isEmpty()) {
+            version = 0;
+        } else {
+            version = Integer.parseInt(attrs.get(0));
+        }
+        return version;
+    }
+
+}
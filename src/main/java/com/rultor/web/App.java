@@ -29,8 +29,11 @@
  */
 package com.rultor.web;
 
+import com.jcabi.github.Github;
+import com.jcabi.github.RtGithub;
 import com.jcabi.manifests.Manifests;
 import com.rultor.Toggles;
+import com.rultor.cached.Memory;
 import com.rultor.spi.Pulse;
 import com.rultor.spi.Talks;
 import java.io.IOException;
@@ -104,7 +107,7 @@ public final class App extends TsWrap {
      */
     public App(final Talks talks, final Collection<Pulse.Tick> ticks,
         final Toggles toggles) {
-        super(App.make(talks, ticks, toggles));
+        this(talks, ticks, toggles, new Memory());
     }
 
     /**
@@ -112,10 +115,61 @@ public final class App extends TsWrap {
      * @param talks Talks
      * @param ticks Ticks
      * @param toggles Toggles
+     * @param memory Memory with caches
+     * @since 2.0
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public App(final Talks talks, final Collection<Pulse.Tick> ticks,
+        final Toggles toggles, final Memory memory) {
+        this(talks, ticks, toggles, memory, new RtGithub());
+    }
+
+    /**
+     * Ctor.
+     * @param talks Talks
+     * @param ticks Ticks
+     * @param toggles Toggles
+     * @param memory Memory with caches
+     * @param github Github client, for webhooks
+     * @since 2.0
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public App(final Talks talks, final Collection<Pulse.Tick> ticks,
+        final Toggles toggles, final Memory memory, final Github github) {
+        this(talks, ticks, toggles, memory, github, new Schedule());
+    }
+
+    /**
+     * Ctor.
+     * @param talks Talks
+     * @param ticks Ticks
+     * @param toggles Toggles
+     * @param memory Memory with caches
+     * @param github Github client, for webhooks
+     * @param schedule Schedule of talks, the same as in {@link Routine}
+     * @since 2.0
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    App(final Talks talks, final Collection<Pulse.Tick> ticks,
+        final Toggles toggles, final Memory memory, final Github github,
+        final Schedule schedule) {
+        super(App.make(talks, ticks, toggles, memory, github, schedule));
+    }
+
+    /**
+     * Ctor.
+     * @param talks Talks
+     * @param ticks Ticks
+     * @param toggles Toggles
+     * @param memory Memory with caches
+     * @param github Github client
+     * @param schedule Schedule of talks
      * @return Takes
+     * @checkstyle ParameterNumberCheck (5 lines)
      */
     private static Takes make(final Talks talks,
-        final Collection<Pulse.Tick> ticks, final Toggles toggles) {
+        final Collection<Pulse.Tick> ticks, final Toggles toggles,
+        final Memory memory, final Github github, final Schedule schedule) {
         if (!"UTF-8".equals(Charset.defaultCharset().name())) {
             throw new IllegalStateException(
                 String.format(
@@ -126,7 +180,11 @@ public final class App extends TsWrap {
         final Takes takes = App.fallback(
             new TsFlash(
                 App.auth(
-                    new TsForward(App.regex(talks, ticks, toggles))
+                    new TsForward(
+                        App.regex(
+                            talks, ticks, toggles, memory, github, schedule
+                        )
+                    )
                 )
             )
         );
@@ -209,10 +267,15 @@ public final class App extends TsWrap {
      * @param talks Talks
      * @param ticks Ticks
      * @param toggles Toggles
+     * @param memory Memory with caches
+     * @param github Github client
+     * @param schedule Schedule of talks
      * @return Takes
+     * @checkstyle ParameterNumberCheck (5 lines)
      */
     private static Takes regex(final Talks talks,
-        final Collection<Pulse.Tick> ticks, final Toggles toggles) {
+        final Collection<Pulse.Tick> ticks, final Toggles toggles,
+        final Memory memory, final Github github, final Schedule schedule) {
         return new TsFork(
             new FkParams(
                 PsByFlag.class.getSimpleName(),
@@ -244,6 +307,15 @@ public final class App extends TsWrap {
                     }
                 }
             ),
+            new FkRegex(
+                "/caches",
+                new Takes() {
+                    @Override
+                    public Take route(final Request req) throws IOException {
+                        return new TkAdminOnly(new TkCaches(memory), req);
+                    }
+                }
+            ),
             new FkRegex(
                 "/",
                 new Target<RqRegex>() {
@@ -275,6 +347,28 @@ public final class App extends TsWrap {
                     }
                 }
             ),
+            new FkRegex(
+                "/hook/github",
+                new Takes() {
+                    @Override
+                    public Take route(final Request req) {
+                        return new TkWebhook(req, talks, schedule, github);
+                    }
+                }
+            ),
+            new FkRegex(
+                "/ping/([0-9]+)-([a-f0-9]+)",
+                new Target<RqRegex>() {
+                    @Override
+                    public Take route(final RqRegex req) throws IOException {
+                        return new TkPing(
+                            req, talks, schedule,
+                            Long.parseLong(req.matcher().group(1)),
+                            req.matcher().group(2)
+                        );
+                    }
+                }
+            ),
             new FkRegex(
                 "/p/([/a-zA-Z0-9_\\-\\.]+)",
                 new Target<RqRegex>() {
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.cached.QuotaWire;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+
+/**
+ * Budget of Github requests per tick.
+ *
+ * <p>The requests left until the rate limit of Github is reset, see
+ * {@link QuotaWire}, are spread evenly across the ticks remaining until
+ * the reset. The budget of a tick is measured in talks, using the average
+ * number of requests one talk costs, which is learned from previous ticks.
+ * At least one talk is allowed per tick while the quota lasts, and none
+ * when it's exhausted. When the quota is unknown, the budget is unlimited.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+final class Budget {
+
+    /**
+     * How long one tick takes, in msec.
+     */
+    private final transient long tick;
+
+    /**
+     * Average number of requests per talk.
+     */
+    private transient double cost;
+
+    /**
+     * Ctor.
+     */
+    Budget() {
+        this(TimeUnit.SECONDS.toMillis((long) Tv.TEN));
+    }
+
+    /**
+     * Ctor.
+     * @param msec How long one tick takes, in msec
+     */
+    Budget(final long msec) {
+        this.tick = msec;
+        this.cost = (double) Tv.TEN;
+    }
+
+    /**
+     * How many talks can be processed in this tick.
+     * @return Number of talks
+     */
+    public int talks() {
+        return this.talks(
+            QuotaWire.remaining(),
+            QuotaWire.reset() - System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * How many talks can be processed in this tick.
+     * @param remaining Requests left, or negative if unknown
+     * @param msec Msec left until the reset
+     * @return Number of talks
+     */
+    public int talks(final long remaining, final long msec) {
+        final int talks;
+        if (remaining < 0L) {
+            talks = Integer.MAX_VALUE;
+        } else {
+            final double spare = (double) (remaining - QuotaWire.RESERVE);
+            final long ticks = Math.max(1L, msec / this.tick);
+            if (spare < this.cost) {
+                talks = 0;
+            } else {
+                talks = (int) Math.max(
+                    1L,
+                    Math.min(
+                        (long) Integer.MAX_VALUE,
+                        (long) (spare / (double) ticks / this.cost)
+                    )
+                );
+            }
+        }
+        return talks;
+    }
+
+    /**
+     * Requests were spent in a tick.
+     * @param requests How many requests were sent
+     * @param talks How many talks were processed
+     */
+    public void spent(final long requests, final int talks) {
+        if (talks > 0) {
+            this.cost = Math.max(
+                1.0d,
+                (this.cost * (double) Tv.THREE
+                    + (double) requests / (double) talks) / (double) Tv.FOUR
+            );
+        }
+    }
+
+}
@@ -35,6 +35,7 @@ import co.stateful.cached.CdSttc;
 import co.stateful.retry.ReSttc;
 import com.google.common.collect.EvictingQueue;
 import com.jcabi.aspects.Cacheable;
+import com.jcabi.aspects.Tv;
 import com.jcabi.dynamo.Credentials;
 import com.jcabi.dynamo.Region;
 import com.jcabi.dynamo.retry.ReRegion;
@@ -42,17 +43,25 @@ import com.jcabi.github.Github;
 import com.jcabi.github.RtGithub;
 import com.jcabi.http.wire.RetryWire;
 import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
 import com.jcabi.manifests.Manifests;
 import com.jcabi.urn.URN;
 import com.rultor.Toggles;
 import com.rultor.cached.CdTalks;
+import com.rultor.cached.EtagWire;
+import com.rultor.cached.Memory;
+import com.rultor.cached.QuotaWire;
+import com.rultor.dynamo.DyNodes;
 import com.rultor.dynamo.DyTalks;
+import com.rultor.dynamo.Migration;
 import com.rultor.spi.Pulse;
 import com.rultor.spi.Talks;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.takes.http.Exit;
 import org.takes.http.FtCLI;
@@ -93,22 +102,41 @@ public final class Entry {
      * Run it all.
      * @throws IOException If fails
      */
+    @SuppressWarnings("PMD.DoNotUseThreads")
     public void exec() throws IOException {
-        final Talks talks = new CdTalks(
-            new DyTalks(
-                this.dynamo(), this.sttc().counters().get("rt-talk")
-            )
+        final Schedule schedule = new Schedule();
+        final Memory memory = new Memory();
+        final Talks talks = new ScTalks(
+            new CdTalks(
+                new DyTalks(
+                    this.dynamo(), this.sttc().counters().get("rt-talk")
+                ),
+                memory
+            ),
+            schedule
         );
         final Collection<Pulse.Tick> ticks = Collections.synchronizedCollection(
             EvictingQueue.<Pulse.Tick>create(
-                (int) TimeUnit.HOURS.toMinutes(1L)
+                (int) TimeUnit.HOURS.toSeconds(1L) / Tv.TEN
             )
         );
         final Routine routine = new Routine(
-            talks, ticks, this.github(), this.sttc()
+            talks, ticks, this.github(), this.sttc(), schedule,
+            new DyNodes(this.dynamo())
+        );
+        final ExecutorService migration = Executors.newSingleThreadExecutor(
+            new VerboseThreads("migration")
         );
+        migration.submit(
+            new Migration(
+                this.dynamo(), this.sttc().counters().get("rt-schema")
+            )
+        );
+        migration.shutdown();
         try {
-            final App app = new App(talks, ticks, new Toggles());
+            final App app = new App(
+                talks, ticks, new Toggles(), memory, this.github(), schedule
+            );
             new FtCLI(app, this.arguments).start(Exit.NEVER);
         } finally {
             routine.close();
@@ -125,7 +153,10 @@ public final class Entry {
         return new RtGithub(
             new RtGithub(
                 Manifests.read("Rultor-GithubToken")
-            ).entry().through(RetryWire.class)
+            ).entry()
+                .through(RetryWire.class)
+                .through(QuotaWire.class)
+                .through(EtagWire.class)
         );
     }
 
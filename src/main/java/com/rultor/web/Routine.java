@@ -30,41 +30,116 @@
 package com.rultor.web;
 
 import co.stateful.Sttc;
+import com.google.common.collect.Iterables;
 import com.jcabi.aspects.ScheduleWithFixedDelay;
 import com.jcabi.aspects.Timeable;
 import com.jcabi.aspects.Tv;
 import com.jcabi.github.Github;
 import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
 import com.rultor.Toggles;
 import com.rultor.agents.Agents;
+import com.rultor.agents.daemons.EndsDaemon;
+import com.rultor.cached.QuotaWire;
+import com.rultor.dynamo.BtTalks;
+import com.rultor.dynamo.DyTalk;
 import com.rultor.profiles.Profiles;
-import com.rultor.spi.Profile;
+import com.rultor.spi.Nodes;
 import com.rultor.spi.Pulse;
+import com.rultor.spi.SuperAgent;
 import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.validation.constraints.NotNull;
 
 /**
  * Routine.
  *
+ * <p>Every tick talks are processed in parallel, by a bounded pool
+ * of threads. A failure in one talk is logged and doesn't affect
+ * the others. Only talks that are due according to the {@link Schedule}
+ * are processed, while super agents sweep all active talks once
+ * a minute. All changes made by agents of a talk are kept in memory
+ * and written to the storage at once, when the agents are done, see
+ * {@link BtTalks}, except results of agents with side effects, which
+ * are written right after them. If another node modified the talk
+ * after it was read, the write is rejected and the agents run again,
+ * against the new XML, a few times. Changes made by super agents are
+ * written when the tick is over. Talks that fail to be written are
+ * processed again in the next tick, and their side effects may be
+ * repeated, since they happen at least once.
+ * Once a minute, before talks are processed, running daemons are
+ * probed, one command per build host, see {@link Agents#prober()}.
+ * Usually a daemon reports itself when it's finished, see
+ * {@link TkPing}, and is ended by the worker of its talk, while
+ * probing is only a fallback.
+ *
+ * <p>Every tick gets a {@link Budget} of talks, according to the quota
+ * of Github. Urgent talks are processed first, see
+ * {@link Schedule#urgent(String)}, and the rest wait for the next tick.
+ * When the quota is exhausted, no talks are processed and no new talks
+ * are picked up from Github, until the quota is reset.
+ *
+ * <p>A few nodes may work against the same talks. Each node processes
+ * only talks of its own {@link Shard}, and only the leader picks up
+ * new talks from Github. Every tick the node renews its lease in
+ * {@link Nodes} and rebuilds the shard out of all live nodes. Since
+ * nodes may see different live nodes for a while, every talk is claimed
+ * in {@link Nodes} right before its agents run, and is skipped if
+ * another node holds the claim. Web requests don't process talks,
+ * they only touch the schedule of the node that received them.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.50
  */
-@ScheduleWithFixedDelay(delay = 1, unit = TimeUnit.MINUTES, threads = 1)
+@ScheduleWithFixedDelay(delay = Tv.TEN, unit = TimeUnit.SECONDS, threads = 1)
 @SuppressWarnings("PMD.DoNotUseThreads")
 final class Routine implements Runnable, Closeable {
 
+    /**
+     * How many talks to process in parallel.
+     */
+    private static final int THREADS = Tv.EIGHT;
+
+    /**
+     * How many times to run agents against a talk, if somebody else
+     * modifies it at the same time.
+     */
+    private static final int ATTEMPTS = Tv.THREE;
+
+    /**
+     * How often super agents sweep all active talks, in msec.
+     */
+    private static final long SWEEP = TimeUnit.MINUTES.toMillis(1L);
+
     /**
      * Shutting down?
      */
     private final transient AtomicBoolean down = new AtomicBoolean();
 
+    /**
+     * When super agents swept all talks last time.
+     */
+    private final transient AtomicLong swept = new AtomicLong();
+
     /**
      * Ticks.
      */
@@ -80,24 +155,65 @@ final class Routine implements Runnable, Closeable {
      */
     private final transient Agents agents;
 
+    /**
+     * Schedule of talks.
+     */
+    private final transient Schedule schedule;
+
+    /**
+     * Budget of Github requests.
+     */
+    private final transient Budget budget;
+
+    /**
+     * All nodes.
+     */
+    private final transient Nodes nodes;
+
+    /**
+     * Name of this node.
+     */
+    private final transient String node;
+
+    /**
+     * Workers, which process talks.
+     */
+    private final transient ExecutorService workers;
+
     /**
      * Ctor.
      * @param tlks Talks
      * @param ticks Ticks
      * @param github Github client
      * @param sttc Sttc client
-     * @checkstyle ParameterNumberCheck (4 lines)
+     * @param sch Schedule of talks
+     * @param all All nodes
+     * @checkstyle ParameterNumberCheck (5 lines)
      */
     Routine(@NotNull final Talks tlks, final Collection<Pulse.Tick> ticks,
-        final Github github, final Sttc sttc) {
+        final Github github, final Sttc sttc, final Schedule sch,
+        final Nodes all) {
         this.talks = tlks;
         this.list = ticks;
         this.agents = new Agents(github, sttc);
+        this.schedule = sch;
+        this.budget = new Budget();
+        this.nodes = all;
+        this.node = UUID.randomUUID().toString();
+        this.workers = Executors.newFixedThreadPool(
+            Routine.THREADS, new VerboseThreads("routine")
+        );
     }
 
     @Override
     public void close() {
         this.down.set(true);
+        this.workers.shutdownNow();
+        try {
+            this.nodes.leave(this.node);
+        } catch (final IOException ex) {
+            Logger.warn(this, "failed to leave: %[exception]s", ex);
+        }
     }
 
     @Override
@@ -118,39 +234,246 @@ final class Routine implements Runnable, Closeable {
     }
 
     /**
-     * Routine every-minute proc.
-     * @return Total talks processed
+     * Routine proc, every tick.
+     * @return Milliseconds spent per talk
      * @throws IOException If fails
      */
-    private int process() throws IOException {
-        this.agents.starter().execute(this.talks);
+    private Map<String, Long> process() throws IOException {
+        this.nodes.beat(this.node);
+        final Shard shard = new Shard(this.node, this.nodes.alive());
+        final BtTalks batch = new BtTalks(new ShTalks(this.talks, shard));
+        try {
+            return this.process(batch, shard.leads());
+        } finally {
+            final Collection<String> failed = batch.flush();
+            if (!failed.isEmpty()) {
+                Logger.warn(
+                    this, "%d talk(s) failed to flush: %[list]s",
+                    failed.size(), failed
+                );
+            }
+            for (final String name : failed) {
+                this.schedule.touch(name);
+            }
+        }
+    }
+
+    /**
+     * Routine proc, every tick, against a batch of talks.
+     * @param batch Talks, which will be flushed after the tick
+     * @param leader TRUE if this node is the leader
+     * @return Milliseconds spent per talk
+     * @throws IOException If fails
+     */
+    private Map<String, Long> process(final Talks batch,
+        final boolean leader) throws IOException {
+        final long now = System.currentTimeMillis();
+        final boolean sweep = now - this.swept.get() >= Routine.SWEEP;
+        final int allowed = this.budget.talks();
+        final AtomicLong requests = new AtomicLong();
+        if (sweep) {
+            this.swept.set(now);
+            final SuperAgent starter;
+            if (leader && allowed > 0) {
+                starter = this.agents.starter();
+            } else {
+                starter = this.agents.indexer();
+            }
+            starter.execute(batch);
+            this.agents.prober().execute(batch);
+        }
         final Profiles profiles = new Profiles();
-        int total = 0;
-        for (final Talk talk : this.talks.active()) {
-            ++total;
-            final Profile profile = profiles.fetch(talk);
-            this.agents.agent(talk, profile).execute(talk);
-        }
-        this.agents.closer().execute(this.talks);
-        return total;
+        final Map<String, Future<Long>> futures =
+            new TreeMap<String, Future<Long>>();
+        final Collection<String> names = new LinkedList<String>();
+        final List<Talk> due = this.due(batch, names);
+        if (due.size() > allowed) {
+            Logger.info(
+                this, "%d talk(s) postponed, Github quota is short",
+                due.size() - allowed
+            );
+        }
+        for (final Talk talk : Iterables.limit(due, allowed)) {
+            final String name = talk.name();
+            futures.put(
+                name,
+                this.workers.submit(
+                    new Callable<Long>() {
+                        @Override
+                        public Long call() {
+                            final long before = QuotaWire.mine();
+                            try {
+                                return Routine.this.process(
+                                    name, talk, profiles
+                                );
+                            } finally {
+                                requests.addAndGet(
+                                    QuotaWire.mine() - before
+                                );
+                            }
+                        }
+                    }
+                )
+            );
+        }
+        final Map<String, Long> msecs = new TreeMap<String, Long>();
+        try {
+            for (final Map.Entry<String, Future<Long>> ent
+                : futures.entrySet()) {
+                msecs.put(ent.getKey(), Routine.msec(ent.getValue()));
+            }
+        } finally {
+            for (final Future<Long> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        this.budget.spent(requests.get(), futures.size());
+        if (sweep) {
+            this.agents.closer().execute(batch);
+            this.schedule.retain(names);
+        }
+        return msecs;
+    }
+
+    /**
+     * Talks that are due, urgent ones first.
+     * @param batch Talks, which will be flushed after the tick
+     * @param names Names of all active talks, to be filled
+     * @return Talks to process
+     * @throws IOException If fails
+     */
+    private List<Talk> due(final Talks batch, final Collection<String> names)
+        throws IOException {
+        final List<Talk> urgent = new LinkedList<Talk>();
+        final List<Talk> due = new LinkedList<Talk>();
+        for (final Talk talk : batch.active()) {
+            final String name = talk.name();
+            names.add(name);
+            if (!this.schedule.due(name)) {
+                continue;
+            }
+            if (this.schedule.urgent(name)) {
+                urgent.add(talk);
+            } else {
+                due.add(talk);
+            }
+        }
+        urgent.addAll(due);
+        return urgent;
+    }
+
+    /**
+     * Process one talk, in a worker thread.
+     * @param name Name of the talk
+     * @param talk The talk
+     * @param profiles Profiles
+     * @return Milliseconds spent
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private long process(final String name, final Talk talk,
+        final Profiles profiles) {
+        final long start = System.currentTimeMillis();
+        this.schedule.start(name);
+        try {
+            if (this.nodes.claim(this.node, name)) {
+                this.attempts(name, talk, profiles);
+                this.schedule.done(name, talk.read());
+            } else {
+                Logger.info(this, "talk %s is claimed by another node", name);
+                this.schedule.failed(name);
+            }
+            // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            this.schedule.failed(name);
+            Logger.warn(this, "talk %s failed: %[exception]s", name, ex);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Run all agents against the talk, again and again, while somebody
+     * else modifies it at the same time.
+     * @param name Name of the talk
+     * @param talk The talk
+     * @param profiles Profiles
+     * @throws IOException If fails
+     */
+    private void attempts(final String name, final Talk talk,
+        final Profiles profiles) throws IOException {
+        final boolean pinged = this.schedule.pinged(name);
+        int attempt = 0;
+        while (true) {
+            try {
+                this.process(talk, profiles, pinged);
+                break;
+            } catch (final DyTalk.ConflictException ex) {
+                ++attempt;
+                if (attempt >= Routine.ATTEMPTS) {
+                    throw ex;
+                }
+                Logger.info(
+                    this, "talk %s was modified concurrently, retry #%d",
+                    name, attempt
+                );
+            }
+        }
+    }
+
+    /**
+     * Run all agents against the talk once and write the results.
+     * @param talk The talk
+     * @param profiles Profiles
+     * @param pinged TRUE if its daemon reported itself
+     * @throws IOException If fails
+     */
+    private void process(final Talk talk, final Profiles profiles,
+        final boolean pinged) throws IOException {
+        if (pinged) {
+            new EndsDaemon().execute(talk);
+        }
+        this.agents.agent(talk, profiles.fetch(talk)).execute(talk);
+        if (talk instanceof Flushable) {
+            Flushable.class.cast(talk).flush();
+        }
+    }
+
+    /**
+     * Wait for the talk to be processed.
+     * @param future The future
+     * @return Milliseconds spent or negative if it failed
+     */
+    private static long msec(final Future<Long> future) {
+        long msec;
+        try {
+            msec = future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (final ExecutionException ex) {
+            Logger.warn(Routine.class, "%[exception]s", ex);
+            msec = -1L;
+        }
+        return msec;
     }
 
     /**
-     * Routine every-minute proc.
+     * Routine proc, every tick.
      * @return Milliseconds spent
      * @throws IOException If fails
      */
     @Timeable(limit = Tv.FIVE, unit = TimeUnit.MINUTES)
     private long safe() throws IOException {
         final long start = System.currentTimeMillis();
-        int total = 0;
+        Map<String, Long> msecs = Collections.emptyMap();
         if (new Toggles().readOnly()) {
             Logger.info(this, "read-only mode");
         } else {
-            total = this.process();
+            msecs = this.process();
         }
         final long msec = System.currentTimeMillis() - start;
-        if (!this.list.add(new Pulse.Tick(start, msec, total))) {
+        if (!this.list.add(
+            new Pulse.Tick(start, msec, msecs.size(), msecs)
+        )) {
             throw new IllegalStateException("failed to add tick");
         }
         return msec;
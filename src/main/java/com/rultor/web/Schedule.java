@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.xml.XML;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Schedule of talks.
+ *
+ * <p>Keeps the time when every talk is due next and a "dirty" flag,
+ * which is set when the talk is modified, created or activated. Only
+ * talks that are due or dirty are processed by {@link Routine}.
+ * Dirty talks and talks with running daemons are urgent, they are
+ * processed first when the quota of Github is short, see {@link Budget}.
+ * A talk may also be pinged by its daemon, see {@link TkPing}, then
+ * it's dirty too and {@link Routine} ends the daemon before other agents.
+ *
+ * <p>The schedule lives in the memory of one node and is shared by its
+ * {@link Routine} and web front. A talk touched on a node that doesn't
+ * own it is noticed by the owner only when it's due there.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+final class Schedule {
+
+    /**
+     * Talks that have work to do right now.
+     */
+    private static final String BUSY = StringUtils.join(
+        "/talk[@later='true'",
+        " or (request and not(daemon)) or (shell and not(daemon))",
+        " or daemon[not(started) or code or ended]]"
+    );
+
+    /**
+     * Talks with a running daemon, which has to be polled.
+     */
+    private static final String RUNNING =
+        "/talk/daemon[started and not(code) and not(ended)]";
+
+    /**
+     * How often to poll running daemons, in msec.
+     */
+    private final transient long poll;
+
+    /**
+     * How often to re-check idle talks, in msec.
+     */
+    private final transient long idle;
+
+    /**
+     * When talks are due next, by talk name.
+     */
+    private final transient ConcurrentMap<String, Long> next =
+        new ConcurrentHashMap<String, Long>(0);
+
+    /**
+     * Names of talks modified since their last processing.
+     */
+    private final transient Set<String> dirty = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>(0)
+    );
+
+    /**
+     * Names of talks pinged by their daemons.
+     */
+    private final transient Set<String> pinged = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>(0)
+    );
+
+    /**
+     * Names of talks with running daemons.
+     */
+    private final transient Set<String> running = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>(0)
+    );
+
+    /**
+     * Ctor.
+     */
+    Schedule() {
+        this(
+            TimeUnit.SECONDS.toMillis((long) Tv.THIRTY),
+            TimeUnit.HOURS.toMillis(1L)
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param daemons How often to poll running daemons, in msec
+     * @param rest How often to re-check idle talks, in msec
+     */
+    Schedule(final long daemons, final long rest) {
+        this.poll = daemons;
+        this.idle = rest;
+    }
+
+    /**
+     * Mark the talk as dirty, it will be processed as soon as possible.
+     * @param name Name of the talk
+     */
+    public void touch(final String name) {
+        this.dirty.add(name);
+    }
+
+    /**
+     * The daemon of the talk reported that it's finished.
+     * @param name Name of the talk
+     */
+    public void ping(final String name) {
+        this.pinged.add(name);
+        this.touch(name);
+    }
+
+    /**
+     * Was the talk pinged by its daemon, since the last time we asked?
+     * @param name Name of the talk
+     * @return TRUE if it was pinged
+     */
+    public boolean pinged(final String name) {
+        return this.pinged.remove(name);
+    }
+
+    /**
+     * Is it time to process this talk?
+     * @param name Name of the talk
+     * @return TRUE if it is due or dirty
+     */
+    public boolean due(final String name) {
+        final Long when = this.next.get(name);
+        return this.dirty.contains(name) || when == null
+            || when <= System.currentTimeMillis();
+    }
+
+    /**
+     * Is it urgent to process this talk, before others?
+     * @param name Name of the talk
+     * @return TRUE if it is dirty or has a running daemon
+     */
+    public boolean urgent(final String name) {
+        return this.dirty.contains(name) || this.running.contains(name);
+    }
+
+    /**
+     * The talk is about to be processed.
+     * @param name Name of the talk
+     */
+    public void start(final String name) {
+        this.dirty.remove(name);
+    }
+
+    /**
+     * The talk was processed, decide when it will be due next.
+     * @param name Name of the talk
+     * @param xml Its XML, after processing
+     */
+    public void done(final String name, final XML xml) {
+        final long delay;
+        if (!xml.nodes(Schedule.BUSY).isEmpty()) {
+            delay = 0L;
+        } else if (!xml.nodes(Schedule.RUNNING).isEmpty()) {
+            delay = this.poll;
+        } else {
+            delay = this.idle;
+        }
+        if (xml.nodes(Schedule.RUNNING).isEmpty()) {
+            this.running.remove(name);
+        } else {
+            this.running.add(name);
+        }
+        this.next.put(name, System.currentTimeMillis() + delay);
+    }
+
+    /**
+     * The talk failed to process, retry it later.
+     * @param name Name of the talk
+     */
+    public void failed(final String name) {
+        this.next.put(name, System.currentTimeMillis() + this.poll);
+    }
+
+    /**
+     * Forget all talks except these ones.
+     * @param names Names of talks to keep
+     */
+    public void retain(final Collection<String> names) {
+        this.next.keySet().retainAll(names);
+        this.running.retainAll(names);
+        this.dirty.retainAll(names);
+        this.pinged.retainAll(names);
+    }
+
+}
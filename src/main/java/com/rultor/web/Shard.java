@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.jcabi.aspects.Tv;
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Shard of talks owned by this node.
+ *
+ * <p>Talks are spread among live nodes by consistent hashing of their
+ * names, with a number of virtual points per node on the ring. When
+ * a node joins or dies only talks next to its points move to other
+ * nodes. Until all nodes see the same live nodes, two of them may
+ * think they own the same talk, that's why the shard is only a hint,
+ * while the owner of a talk is decided by
+ * {@link com.rultor.spi.Nodes#claim(String, String)}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "self", "nodes" })
+@EqualsAndHashCode(of = { "self", "nodes" })
+final class Shard {
+
+    /**
+     * Virtual points per node on the ring.
+     */
+    private static final int POINTS = Tv.HUNDRED;
+
+    /**
+     * Name of this node.
+     */
+    private final transient String self;
+
+    /**
+     * All live nodes, including this one.
+     */
+    private final transient SortedSet<String> nodes;
+
+    /**
+     * The ring, points to names of nodes.
+     */
+    private final transient SortedMap<Integer, String> ring;
+
+    /**
+     * Ctor.
+     * @param node Name of this node
+     * @param live Names of all live nodes
+     */
+    Shard(final String node, final Collection<String> live) {
+        this.self = node;
+        this.nodes = new TreeSet<String>(live);
+        this.nodes.add(node);
+        this.ring = new TreeMap<Integer, String>();
+        for (final String name : this.nodes) {
+            for (int idx = 0; idx < Shard.POINTS; ++idx) {
+                this.ring.put(
+                    Shard.hash(String.format("%s#%d", name, idx)), name
+                );
+            }
+        }
+    }
+
+    /**
+     * Does this node own the talk?
+     * @param talk Name of the talk
+     * @return TRUE if it does
+     */
+    public boolean owns(final String talk) {
+        final SortedMap<Integer, String> tail =
+            this.ring.tailMap(Shard.hash(talk));
+        final String owner;
+        if (tail.isEmpty()) {
+            owner = this.ring.get(this.ring.firstKey());
+        } else {
+            owner = tail.get(tail.firstKey());
+        }
+        return this.self.equals(owner);
+    }
+
+    /**
+     * Is this node the leader, which runs jobs not related to any talk?
+     * @return TRUE if it is
+     */
+    public boolean leads() {
+        return this.self.equals(this.nodes.first());
+    }
+
+    /**
+     * Hash of a string.
+     * @param text The text
+     * @return Hash
+     */
+    private static int hash(final String text) {
+        return Hashing.murmur3_32().hashString(text, Charsets.UTF_8).asInt();
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.google.common.cache.CacheStats;
+import com.jcabi.aspects.Tv;
+import com.rultor.cached.EtagWire;
+import com.rultor.cached.Memory;
+import com.rultor.cached.QuotaWire;
+import java.util.Map;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsWithBody;
+import org.takes.rs.RsWithType;
+
+/**
+ * Statistics of caches, in plain text.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+final class TkCaches implements Take {
+
+    /**
+     * Memory with caches.
+     */
+    private final transient Memory memory;
+
+    /**
+     * Ctor.
+     * @param mem Memory
+     */
+    TkCaches(final Memory mem) {
+        this.memory = mem;
+    }
+
+    @Override
+    public Response act() {
+        final Map<String, Long> sizes = this.memory.sizes();
+        final StringBuilder text = new StringBuilder(Tv.THOUSAND);
+        for (final Map.Entry<String, CacheStats> ent
+            : this.memory.stats().entrySet()) {
+            final CacheStats stats = ent.getValue();
+            text.append(
+                String.format(
+                    // @checkstyle LineLength (1 line)
+                    "%s: size=%d, hits=%d, misses=%d, evictions=%d, hit-rate=%.2f\n",
+                    ent.getKey(), sizes.get(ent.getKey()),
+                    stats.hitCount(), stats.missCount(),
+                    stats.evictionCount(), stats.hitRate()
+                )
+            );
+        }
+        final Map<String, Long> github = EtagWire.stats();
+        text.append(
+            String.format(
+                "github: size=%d, hits=%d, misses=%d\n",
+                github.get("size"), github.get("hits"),
+                github.get("misses")
+            )
+        );
+        final Map<String, Long> quota = QuotaWire.stats();
+        text.append(
+            String.format(
+                "github-quota: remaining=%d, sent=%d, refused=%d\n",
+                quota.get("remaining"), quota.get("sent"),
+                quota.get("refused")
+            )
+        );
+        return new RsWithType(
+            new RsWithBody(text.toString()),
+            "text/plain"
+        );
+    }
+
+}
@@ -37,19 +37,32 @@ import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.takes.Request;
 import org.takes.Response;
 import org.takes.Take;
 import org.takes.facets.flash.RsFlash;
 import org.takes.facets.forward.RsForward;
+import org.takes.rq.RqHeaders;
+import org.takes.rq.RqHref;
 import org.takes.rs.RsFluent;
 
 /**
  * Single daemon.
  *
+ * <p>With "offset" query parameter it returns raw output of the daemon,
+ * starting from that byte, and with "follow" parameter it keeps
+ * streaming the output for a while, as the daemon produces it. A browser
+ * may poll this way, adding the number of bytes received to the offset,
+ * instead of fetching the entire log every time. An offset which is not
+ * a number is treated as zero. An archived log stored
+ * in gzip is sent as is, when the client accepts gzip and reads it
+ * from the beginning, without decompressing and compressing it again.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.50
@@ -76,6 +89,21 @@ final class TkDaemon implements Take {
      */
     private final transient String hash;
 
+    /**
+     * Byte to start from, or negative if the entire page is required.
+     */
+    private final transient long offset;
+
+    /**
+     * Follow the output?
+     */
+    private final transient boolean follow;
+
+    /**
+     * Does the client accept gzip?
+     */
+    private final transient boolean gzip;
+
     /**
      * Ctor.
      * @param req Request
@@ -91,6 +119,19 @@ final class TkDaemon implements Take {
         this.talks = tlks;
         this.number = num;
         this.hash = hsh;
+        final List<String> offsets = new RqHref(req).href().param("offset");
+        if (offsets.isEmpty()) {
+            this.offset = -1L;
+        } else {
+            this.offset = Math.max(0L, NumberUtils.toLong(offsets.get(0)));
+        }
+        this.follow = !new RqHref(req).href().param("follow").isEmpty();
+        boolean accepts = false;
+        for (final String enc
+            : new RqHeaders(req).header("Accept-Encoding")) {
+            accepts |= enc.contains(Tail.GZIP);
+        }
+        this.gzip = accepts;
     }
 
     @Override
@@ -116,9 +157,30 @@ final class TkDaemon implements Take {
                 )
             );
         }
-        return new RsFluent()
-            .withBody(this.html())
-            .withType("text/html; charset=utf-8")
+        final RsFluent response;
+        if (this.offset < 0L && !this.follow) {
+            response = new RsFluent()
+                .withBody(this.html())
+                .withType("text/html; charset=utf-8");
+        } else {
+            final Tail tail = new Tail(
+                this.talks.get(this.number).read(), this.hash
+            );
+            final RsFluent plain = new RsFluent()
+                .withType("text/plain; charset=utf-8")
+                .withHeader("Cache-Control", "no-cache");
+            if (this.offset == 0L && !this.follow && this.gzip
+                && tail.gzipped()) {
+                response = plain
+                    .withHeader("Content-Encoding", Tail.GZIP)
+                    .withBody(tail.gzip());
+            } else {
+                response = plain.withBody(
+                    tail.read(Math.max(0L, this.offset), this.follow)
+                );
+            }
+        }
+        return response
             .withHeader(
                 "X-Rultor-Daemon",
                 String.format("%s-%s", this.number, this.hash)
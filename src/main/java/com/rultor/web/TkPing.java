@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.rultor.agents.daemons.Ping;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqHref;
+import org.takes.rs.RsFluent;
+import org.takes.rs.RsWithStatus;
+
+/**
+ * Ping from a finished daemon.
+ *
+ * <p>The talk is marked in the {@link Schedule} as pinged and becomes
+ * due for processing. Its daemon is ended by {@link Routine}, together
+ * with all other agents of the talk, in the same batch, and only on
+ * the node which owns the talk. If this node doesn't own it, the daemon
+ * is ended by the owner when it probes running daemons.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+final class TkPing implements Take {
+
+    /**
+     * Talks.
+     */
+    private final transient Talks talks;
+
+    /**
+     * Schedule of talks.
+     */
+    private final transient Schedule schedule;
+
+    /**
+     * Talk unique number.
+     */
+    private final transient long number;
+
+    /**
+     * Daemon hash ID.
+     */
+    private final transient String hash;
+
+    /**
+     * Token received.
+     */
+    private final transient String token;
+
+    /**
+     * Ctor.
+     * @param req Request
+     * @param tlks Talks
+     * @param sch Schedule of talks
+     * @param num Talk number
+     * @param hsh Hash of the daemon
+     * @checkstyle ParameterNumberCheck (5 lines)
+     * @throws IOException If fails
+     */
+    TkPing(final Request req, final Talks tlks, final Schedule sch,
+        final long num, final String hsh) throws IOException {
+        this.talks = tlks;
+        this.schedule = sch;
+        this.number = num;
+        this.hash = hsh;
+        final List<String> tokens = new RqHref(req).href().param("t");
+        if (tokens.isEmpty()) {
+            this.token = "";
+        } else {
+            this.token = tokens.get(0);
+        }
+    }
+
+    @Override
+    public Response act() throws IOException {
+        final int status;
+        if (!new Ping(this.number, this.hash).valid(this.token)) {
+            status = HttpURLConnection.HTTP_FORBIDDEN;
+        } else if (this.talks.exists(this.number)) {
+            final Talk talk = this.talks.get(this.number);
+            if (!talk.read().nodes(
+                String.format("/talk/daemon[@id='%s']", this.hash)
+            ).isEmpty()) {
+                this.schedule.ping(talk.name());
+            }
+            status = HttpURLConnection.HTTP_NO_CONTENT;
+        } else {
+            status = HttpURLConnection.HTTP_NOT_FOUND;
+        }
+        return new RsWithStatus(new RsFluent(), status);
+    }
+
+}
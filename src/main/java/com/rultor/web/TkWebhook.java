@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.aspects.Cacheable;
+import com.jcabi.github.Coordinates;
+import com.jcabi.github.Github;
+import com.jcabi.log.Logger;
+import com.jcabi.manifests.Manifests;
+import com.rultor.agents.github.StartsTalks;
+import com.rultor.spi.Talks;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqHeaders;
+import org.takes.rs.RsFluent;
+import org.takes.rs.RsWithStatus;
+
+/**
+ * Github webhook.
+ *
+ * <p>Github posts here every new comment in issues of repositories
+ * where the hook is configured, with {@code Rultor-WebhookSecret}
+ * from the manifest as its secret. When a comment mentions Rultor,
+ * the talk of the issue is activated right away, instead of waiting
+ * for the notification, which {@link StartsTalks} polls. The talk is
+ * touched in the {@link Schedule} of this node, which is shared with
+ * its {@link Routine}, so it's processed in the next tick if this node
+ * owns it.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+final class TkWebhook implements Take {
+
+    /**
+     * HMAC algorithm of signatures.
+     */
+    private static final String HMAC = "HmacSHA1";
+
+    /**
+     * Request.
+     */
+    private final transient Request request;
+
+    /**
+     * Talks.
+     */
+    private final transient Talks talks;
+
+    /**
+     * Schedule of talks.
+     */
+    private final transient Schedule schedule;
+
+    /**
+     * Github client.
+     */
+    private final transient Github github;
+
+    /**
+     * Ctor.
+     * @param req Request
+     * @param tlks Talks
+     * @param sch Schedule of talks
+     * @param ghub Github client
+     */
+    TkWebhook(final Request req, final Talks tlks, final Schedule sch,
+        final Github ghub) {
+        this.request = req;
+        this.talks = tlks;
+        this.schedule = sch;
+        this.github = ghub;
+    }
+
+    @Override
+    public Response act() throws IOException {
+        final byte[] body = IOUtils.toByteArray(this.request.body());
+        final int status;
+        if (!TkWebhook.signed(
+            body, new RqHeaders(this.request).header("X-Hub-Signature")
+        )) {
+            status = HttpURLConnection.HTTP_FORBIDDEN;
+        } else {
+            if (new RqHeaders(this.request).header("X-GitHub-Event")
+                .contains("issue_comment")) {
+                this.comment(
+                    Json.createReader(new ByteArrayInputStream(body))
+                        .readObject()
+                );
+            }
+            status = HttpURLConnection.HTTP_NO_CONTENT;
+        }
+        return new RsWithStatus(new RsFluent(), status);
+    }
+
+    /**
+     * Activate the talk, if the new comment mentions Rultor.
+     * @param event Event from Github
+     * @throws IOException If fails
+     */
+    private void comment(final JsonObject event) throws IOException {
+        final String mention = String.format(
+            "@%s", TkWebhook.login(this.github)
+        );
+        if ("created".equals(event.getString("action", ""))
+            && event.getJsonObject("comment").getString("body", "")
+                .contains(mention)) {
+            final String name = new StartsTalks(this.github).activate(
+                this.talks,
+                new Coordinates.Simple(
+                    event.getJsonObject("repository").getString("full_name")
+                ),
+                event.getJsonObject("issue").getInt("number")
+            );
+            this.schedule.touch(name);
+            Logger.info(this, "talk %s activated by webhook", name);
+        }
+    }
+
+    /**
+     * Login of Rultor in Github, resolved only once.
+     * @param ghub Github client
+     * @return Login
+     * @throws IOException If fails
+     */
+    @Cacheable(forever = true)
+    private static String login(final Github ghub) throws IOException {
+        return ghub.users().self().login();
+    }
+
+    /**
+     * Is it signed by Github with our key?
+     * @param body Body of the request
+     * @param signatures Signatures in headers
+     * @return TRUE if signed correctly
+     * @throws IOException If fails
+     */
+    private static boolean signed(final byte[] body,
+        final List<String> signatures) throws IOException {
+        boolean signed = false;
+        if (!signatures.isEmpty()) {
+            try {
+                final Mac mac = Mac.getInstance(TkWebhook.HMAC);
+                mac.init(
+                    new SecretKeySpec(
+                        Manifests.read("Rultor-WebhookSecret")
+                            .getBytes(CharEncoding.UTF_8),
+                        TkWebhook.HMAC
+                    )
+                );
+                signed = MessageDigest.isEqual(
+                    String.format(
+                        "sha1=%s", Hex.encodeHexString(mac.doFinal(body))
+                    ).getBytes(CharEncoding.UTF_8),
+                    signatures.get(0).getBytes(CharEncoding.UTF_8)
+                );
+            } catch (final GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return signed;
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.jcabi.xml.XMLDocument;
+import com.rultor.spi.Talk;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.xembly.Directives;
+
+/**
+ * Tests for {@link Draft}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class DraftTest {
+
+    /**
+     * Draft can modify in memory and save at once.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void modifiesInMemoryAndSavesOnce() throws Exception {
+        final Talk talk = new Talk.InFile();
+        final Draft draft = new Draft(talk);
+        draft.modify(
+            new Directives().xpath("/talk")
+                .add("wire").add("href").set("#1")
+        );
+        draft.modify(
+            new Directives().xpath("/talk/wire")
+                .add("github-repo").set("test/test")
+        );
+        MatcherAssert.assertThat(
+            draft.read(),
+            XhtmlMatchers.hasXPaths("/talk/wire[href and github-repo]")
+        );
+        MatcherAssert.assertThat(
+            talk.read(),
+            Matchers.not(XhtmlMatchers.hasXPath("/talk/wire"))
+        );
+        draft.save();
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPaths("/talk/wire[href='#1' and github-repo]")
+        );
+    }
+
+    /**
+     * Draft can send the version it was made for and read again.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void savesVersionAndReadsAgain() throws Exception {
+        final Talk talk = new Talk.InFile(
+            new XMLDocument(
+                "<talk name='a' number='1' later='false' version='7'/>"
+            )
+        );
+        final Draft draft = new Draft(talk);
+        draft.modify(new Directives().xpath("/talk").attr("later", "true"));
+        talk.modify(new Directives().xpath("/talk").attr("version", "8"));
+        draft.save();
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPath("/talk[@later='true' and @version='7']")
+        );
+        talk.modify(new Directives().xpath("/talk").add("wire"));
+        MatcherAssert.assertThat(
+            draft.read(),
+            XhtmlMatchers.hasXPath("/talk/wire")
+        );
+    }
+
+}
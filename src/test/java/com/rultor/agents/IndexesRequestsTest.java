@@ -29,6 +29,7 @@
  */
 package com.rultor.agents;
 
+import co.stateful.mock.MkSttc;
 import com.jcabi.matchers.XhtmlMatchers;
 import com.rultor.spi.Talks;
 import org.hamcrest.MatcherAssert;
@@ -61,7 +62,9 @@ public final class IndexesRequestsTest {
                 .add("args").up()
                 .add("type").set("deploy").up()
         );
-        new IndexesRequests().execute(talks);
+        new IndexesRequests(new MkSttc().counters().get("")).execute(
+            talks
+        );
         MatcherAssert.assertThat(
             talks.get(name).read(),
             XhtmlMatchers.hasXPaths("/talk/request[@index='1']")
@@ -89,7 +92,9 @@ public final class IndexesRequestsTest {
                 .add("args").up()
                 .add("type").set("deploy").up()
         );
-        new IndexesRequests().execute(talks);
+        new IndexesRequests(new MkSttc().counters().get("")).execute(
+            talks
+        );
         MatcherAssert.assertThat(
             talks.get(name).read(),
             XhtmlMatchers.hasXPaths("/talk/request[@index='3']")
@@ -97,8 +102,7 @@ public final class IndexesRequestsTest {
     }
 
     /**
-     * IndexesRequests should retrieve index from sibling
-     * (the test is skipped, more information in #733).
+     * IndexesRequests should retrieve index from sibling.
      * @throws Exception In case of error.
      */
     @Test
@@ -131,10 +135,12 @@ public final class IndexesRequestsTest {
                 .add("args").up()
                 .add("type").set("merge").up()
         );
-        new IndexesRequests().execute(talks);
+        new IndexesRequests(new MkSttc().counters().get("")).execute(
+            talks
+        );
         MatcherAssert.assertThat(
             talks.get(third).read(),
-            XhtmlMatchers.hasXPaths("/talk/request[@index='5']")
+            XhtmlMatchers.hasXPaths("/talk/request[@index='3']")
         );
     }
 
@@ -151,7 +157,9 @@ public final class IndexesRequestsTest {
             new Directives()
                 .xpath("/talk").add("wire").add("href").set("#1").up()
         );
-        new IndexesRequests().execute(talks);
+        new IndexesRequests(new MkSttc().counters().get("")).execute(
+            talks
+        );
         MatcherAssert.assertThat(
             talks.get(name).read(),
             Matchers.not(
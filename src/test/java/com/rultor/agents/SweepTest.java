@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.rultor.spi.Agent;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.xembly.Directives;
+
+/**
+ * Tests for {@link Sweep}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class SweepTest {
+
+    /**
+     * Sweep can run all agents in one pass.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void runsAllAgentsInOnePass() throws Exception {
+        final Talk talk = new Talk.InFile();
+        final Talks talks = Mockito.mock(Talks.class);
+        Mockito.doReturn(Collections.singleton(talk)).when(talks).active();
+        new Sweep(
+            new Agent() {
+                @Override
+                public void execute(final Talk tlk) throws IOException {
+                    tlk.modify(
+                        new Directives().xpath("/talk").attr("later", "true")
+                    );
+                }
+            },
+            new Agent() {
+                @Override
+                public void execute(final Talk tlk) throws IOException {
+                    if (!tlk.read().nodes("/talk[@later='true']").isEmpty()) {
+                        tlk.modify(
+                            new Directives().xpath("/talk")
+                                .attr("public", "false")
+                        );
+                    }
+                }
+            }
+        ).execute(talks);
+        Mockito.verify(talks, Mockito.times(1)).active();
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPath("/talk[@later='true' and @public='false']")
+        );
+    }
+
+    /**
+     * Sweep can skip a failed talk and sweep the others.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void skipsFailedTalk() throws Exception {
+        final Talk broken = new Talk.InFile();
+        final Talk talk = new Talk.InFile();
+        final Talks talks = Mockito.mock(Talks.class);
+        Mockito.doReturn(Arrays.asList(broken, talk)).when(talks).active();
+        new Sweep(
+            new Agent() {
+                @Override
+                public void execute(final Talk tlk) throws IOException {
+                    if (tlk.equals(broken)) {
+                        throw new IOException("can't sweep");
+                    }
+                    tlk.modify(
+                        new Directives().xpath("/talk").attr("later", "true")
+                    );
+                }
+            }
+        ).execute(talks);
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPath("/talk[@later='true']")
+        );
+    }
+
+}
@@ -71,7 +71,7 @@ public final class ArchivesDaemonITCase {
         final int port = sshd.port();
         final File home = new File(sshd.home(), "test");
         FileUtils.forceMkdir(home);
-        FileUtils.write(new File(home, "stdout"), "some output");
+        FileUtils.write(new File(home, "stdout"), "some\noutput\n");
         final Talk talk = new Talk.InFile();
         talk.modify(
             new Directives().xpath("/talk")
@@ -98,7 +98,7 @@ public final class ArchivesDaemonITCase {
             XhtmlMatchers.hasXPaths(
                 "/talk[not(daemon)]",
                 "/talk/archive/log[@id='abcd' and starts-with(.,'s3://test/')]",
-                "/talk/archive/log[@id='abcd' and @title]"
+                "/talk/archive/log[@id='abcd' and contains(@title,'2 lines')]"
             )
         );
     }
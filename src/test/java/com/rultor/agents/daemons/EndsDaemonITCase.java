@@ -33,9 +33,12 @@ import com.jcabi.matchers.XhtmlMatchers;
 import com.jcabi.ssh.SSHD;
 import com.rultor.Time;
 import com.rultor.spi.Agent;
+import com.rultor.spi.SuperAgent;
 import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.hamcrest.MatcherAssert;
@@ -102,6 +105,69 @@ public final class EndsDaemonITCase {
         );
     }
 
+    /**
+     * EndsDaemon can probe all daemons of a host at once.
+     * @throws IOException In case of error.
+     */
+    @Test
+    public void probesAllDaemonsOfHost() throws IOException {
+        Assume.assumeFalse(SystemUtils.IS_OS_WINDOWS);
+        final SSHD sshd = new SSHD(this.temp.newFolder());
+        final Talks talks = new Talks.InDir();
+        talks.create("", "ended");
+        final File ended = new File(sshd.home(), "ended");
+        FileUtils.write(new File(ended, "stdout"), "");
+        FileUtils.write(new File(ended, "status"), "3");
+        this.attach(talks.get("ended"), sshd, ended);
+        talks.create("", "running");
+        final File running = new File(sshd.home(), "running");
+        FileUtils.write(new File(running, "stdout"), "");
+        FileUtils.write(
+            new File(running, "pid"),
+            ManagementFactory.getRuntimeMXBean().getName().split("@")[0]
+        );
+        this.attach(talks.get("running"), sshd, running);
+        final SuperAgent agent = new EndsDaemon();
+        agent.execute(talks);
+        MatcherAssert.assertThat(
+            talks.get("ended").read(),
+            XhtmlMatchers.hasXPath("/talk/daemon[code='3']")
+        );
+        MatcherAssert.assertThat(
+            talks.get("running").read(),
+            XhtmlMatchers.hasXPath("/talk/daemon[not(code)]")
+        );
+    }
+
+    /**
+     * EndsDaemon can probe daemons of one host with different keys apart.
+     * @throws IOException In case of error.
+     */
+    @Test
+    public void probesDaemonsWithDifferentKeysApart() throws IOException {
+        Assume.assumeFalse(SystemUtils.IS_OS_WINDOWS);
+        final SSHD sshd = new SSHD(this.temp.newFolder());
+        final Talks talks = new Talks.InDir();
+        talks.create("", "broken");
+        final File broken = new File(sshd.home(), "a-broken");
+        FileUtils.write(new File(broken, "status"), "1");
+        this.attach(talks.get("broken"), sshd, broken, "not-a-valid-key");
+        talks.create("", "finished");
+        final File finished = new File(sshd.home(), "b-finished");
+        FileUtils.write(new File(finished, "stdout"), "");
+        FileUtils.write(new File(finished, "status"), "0");
+        this.attach(talks.get("finished"), sshd, finished);
+        new EndsDaemon().execute(talks);
+        MatcherAssert.assertThat(
+            talks.get("finished").read(),
+            XhtmlMatchers.hasXPath("/talk/daemon[code='0']")
+        );
+        MatcherAssert.assertThat(
+            talks.get("broken").read(),
+            XhtmlMatchers.hasXPath("/talk/daemon[not(code)]")
+        );
+    }
+
     /**
      * Start a talk.
      * @param talk Talk to start
@@ -113,10 +179,37 @@ public final class EndsDaemonITCase {
         throws IOException {
         Assume.assumeFalse(SystemUtils.IS_OS_WINDOWS);
         final SSHD sshd = new SSHD(this.temp.newFolder());
-        final int port = sshd.port();
         final File home = new File(sshd.home(), "test-home");
         FileUtils.forceMkdir(home);
         FileUtils.write(new File(home.getAbsolutePath(), "stdout"), stdout);
+        this.attach(talk, sshd, home);
+        return home;
+    }
+
+    /**
+     * Attach a running daemon to the talk.
+     * @param talk Talk
+     * @param sshd SSH server
+     * @param home Dir of the daemon
+     * @throws IOException In case of error.
+     */
+    private void attach(final Talk talk, final SSHD sshd, final File home)
+        throws IOException {
+        this.attach(talk, sshd, home, sshd.key());
+    }
+
+    /**
+     * Attach a running daemon to the talk, with the given SSH key.
+     * @param talk Talk
+     * @param sshd SSH server
+     * @param home Dir of the daemon
+     * @param key Private SSH key
+     * @throws IOException In case of error.
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void attach(final Talk talk, final SSHD sshd, final File home,
+        final String key) throws IOException {
+        final int port = sshd.port();
         talk.modify(
             new Directives().xpath("/talk")
                 .add("daemon")
@@ -131,8 +224,7 @@ public final class EndsDaemonITCase {
                 .add("host").set("localhost").up()
                 .add("port").set(Integer.toString(port)).up()
                 .add("login").set(sshd.login()).up()
-                .add("key").set(sshd.key()).up().up()
+                .add("key").set(key).up().up()
         );
-        return home;
     }
 }
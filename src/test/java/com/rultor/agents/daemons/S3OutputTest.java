@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.daemons;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.jcabi.s3.Bucket;
+import com.jcabi.s3.Region;
+import com.jcabi.s3.mock.MkBucket;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+/**
+ * Tests for {@link S3Output}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+public final class S3OutputTest {
+
+    /**
+     * Temp directory.
+     * @checkstyle VisibilityModifierCheck (5 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * S3Output can upload a small object in one piece.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void uploadsSmallObject() throws Exception {
+        final Bucket bucket = new MkBucket(this.temp.newFolder(), "test");
+        final OutputStream output = new S3Output(
+            bucket, "a/b.txt", new ObjectMetadata()
+        );
+        output.write("hello, ".getBytes(CharEncoding.UTF_8));
+        output.write('!');
+        output.close();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        bucket.ocket("a/b.txt").read(baos);
+        MatcherAssert.assertThat(
+            baos.toString(CharEncoding.UTF_8),
+            Matchers.equalTo("hello, !")
+        );
+    }
+
+    /**
+     * S3Output can upload a big object by parts.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void uploadsBigObjectByParts() throws Exception {
+        final AmazonS3 aws = S3OutputTest.aws();
+        final OutputStream output = new S3Output(
+            S3OutputTest.bucket(aws), "big.txt", new ObjectMetadata()
+        );
+        output.write(new byte[S3Output.PART + 1]);
+        output.close();
+        Mockito.verify(aws, Mockito.times(2)).uploadPart(
+            Mockito.any(UploadPartRequest.class)
+        );
+        Mockito.verify(aws).completeMultipartUpload(
+            Mockito.any(CompleteMultipartUploadRequest.class)
+        );
+        Mockito.verify(aws, Mockito.never()).abortMultipartUpload(
+            Mockito.any(AbortMultipartUploadRequest.class)
+        );
+        Mockito.verify(aws).shutdown();
+    }
+
+    /**
+     * S3Output can abort the upload when it can't be completed.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void abortsUploadWhenCompletionFails() throws Exception {
+        final AmazonS3 aws = S3OutputTest.aws();
+        Mockito.doThrow(new AmazonClientException("oops"))
+            .when(aws).completeMultipartUpload(
+                Mockito.any(CompleteMultipartUploadRequest.class)
+            );
+        final S3Output output = new S3Output(
+            S3OutputTest.bucket(aws), "broken.txt", new ObjectMetadata()
+        );
+        output.write(new byte[S3Output.PART]);
+        try {
+            output.close();
+            MatcherAssert.assertThat("exception expected", false);
+        } catch (final IOException ex) {
+            MatcherAssert.assertThat(
+                ex.getMessage(), Matchers.containsString("oops")
+            );
+        }
+        output.abort();
+        Mockito.verify(aws).abortMultipartUpload(
+            Mockito.any(AbortMultipartUploadRequest.class)
+        );
+        Mockito.verify(aws).shutdown();
+    }
+
+    /**
+     * Mock AWS client, which accepts parts.
+     * @return Client
+     */
+    private static AmazonS3 aws() {
+        final AmazonS3 aws = Mockito.mock(AmazonS3.class);
+        final InitiateMultipartUploadResult init =
+            new InitiateMultipartUploadResult();
+        init.setUploadId("upload-1");
+        Mockito.doReturn(init).when(aws).initiateMultipartUpload(
+            Mockito.any(InitiateMultipartUploadRequest.class)
+        );
+        final UploadPartResult part = new UploadPartResult();
+        part.setPartNumber(1);
+        part.setETag("etag");
+        Mockito.doReturn(part).when(aws).uploadPart(
+            Mockito.any(UploadPartRequest.class)
+        );
+        return aws;
+    }
+
+    /**
+     * Mock bucket on top of the client.
+     * @param aws AWS client
+     * @return Bucket
+     */
+    private static Bucket bucket(final AmazonS3 aws) {
+        final Region region = Mockito.mock(Region.class);
+        Mockito.doReturn(aws).when(region).aws();
+        final Bucket bucket = Mockito.mock(Bucket.class);
+        Mockito.doReturn(region).when(bucket).region();
+        Mockito.doReturn("test").when(bucket).name();
+        return bucket;
+    }
+
+}
@@ -32,12 +32,14 @@ package com.rultor.agents.github;
 import com.jcabi.github.Issue;
 import com.jcabi.github.Repo;
 import com.jcabi.github.mock.MkGithub;
+import com.jcabi.matchers.XhtmlMatchers;
 import com.rultor.spi.SuperAgent;
 import com.rultor.spi.Talks;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 /**
  * Tests for ${@link StartsTalks}.
@@ -67,4 +69,31 @@ public final class StartsTalksTest {
         );
     }
 
+    /**
+     * StartsTalks can activate a talk created by someone else meanwhile.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void activatesTalkCreatedConcurrently() throws Exception {
+        final Repo repo = new MkGithub().randomRepo();
+        final Issue issue = repo.issues().create("", "");
+        final String name = String.format(
+            "%s#%d", repo.coordinates(), issue.number()
+        );
+        final Talks origin = new Talks.InDir();
+        origin.create(repo.coordinates().toString(), name);
+        final Talks talks = Mockito.mock(Talks.class);
+        Mockito.doReturn(false).doReturn(true).when(talks).exists(name);
+        Mockito.doThrow(new IllegalStateException("exists")).when(talks)
+            .create(repo.coordinates().toString(), name);
+        Mockito.doReturn(origin.get(name)).when(talks).get(name);
+        new StartsTalks(repo.github()).activate(
+            talks, repo.coordinates(), issue.number()
+        );
+        MatcherAssert.assertThat(
+            origin.get(name).read(),
+            XhtmlMatchers.hasXPath("/talk[@later='true']/wire/github-issue")
+        );
+    }
+
 }
@@ -29,10 +29,13 @@
  */
 package com.rultor.agents.github;
 
+import com.jcabi.aspects.Tv;
 import com.jcabi.github.Comment;
+import com.jcabi.github.Github;
 import com.jcabi.github.Issue;
 import com.jcabi.github.Repo;
 import com.jcabi.github.mock.MkGithub;
+import com.jcabi.http.request.FakeRequest;
 import com.jcabi.matchers.XhtmlMatchers;
 import com.rultor.agents.github.qtn.QnDeploy;
 import com.rultor.agents.github.qtn.QnFirstOf;
@@ -43,9 +46,13 @@ import com.rultor.spi.Talk;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.xembly.Directives;
 
 /**
@@ -70,7 +77,7 @@ public final class UnderstandsTest {
         issue.comments().post("@jeff hello");
         issue.comments().post("@jeff deploy");
         final Agent agent = new Understands(
-            repo.github(),
+            UnderstandsTest.github(issue),
             new QnFirstOf(
                 Arrays.<Question>asList(
                     new QnIfContains("hello", new QnHello()),
@@ -138,6 +145,103 @@ public final class UnderstandsTest {
         );
     }
 
+    /**
+     * Understands can fetch only comments updated since the last seen one.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void fetchesOnlyFreshComments() throws Exception {
+        final Repo repo = new MkGithub().randomRepo();
+        final Issue issue = repo.issues().create("", "");
+        issue.comments().post("@jeff hello");
+        issue.comments().post("@jeff deploy");
+        issue.comments().post("@jeff deploy, please");
+        final Agent agent = new Understands(
+            UnderstandsTest.github(
+                repo,
+                Json.createArrayBuilder()
+                    .add(Json.createObjectBuilder().add("id", Tv.THREE))
+                    .build()
+            ),
+            new QnIfContains("deploy", new QnDeploy())
+        );
+        final Talk talk = UnderstandsTest.talk(issue);
+        talk.modify(
+            new Directives().xpath("/talk/wire")
+                .add("github-seen").set("1").up()
+                .add("github-seen-at").set("2015-01-01T00:00:00Z")
+        );
+        agent.execute(talk);
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPaths(
+                "/talk/wire[github-seen='3']",
+                "/talk/request[@id='3']"
+            )
+        );
+    }
+
+    /**
+     * Understands can record the time of the last seen comment of a talk
+     * that doesn't have it yet.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void recordsTimeOfLastSeenComment() throws Exception {
+        final Repo repo = new MkGithub().randomRepo();
+        final Issue issue = repo.issues().create("", "");
+        issue.comments().post("@jeff hello");
+        final Agent agent = new Understands(
+            repo.github(),
+            new QnIfContains("hello", new QnHello())
+        );
+        final Talk talk = UnderstandsTest.talk(issue);
+        talk.modify(
+            new Directives().xpath("/talk/wire").add("github-seen").set("1")
+        );
+        agent.execute(talk);
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPaths(
+                "/talk/wire[github-seen='1']",
+                "/talk/wire/github-seen-at"
+            )
+        );
+    }
+
+    /**
+     * Make Github, which returns all comments of the issue, when they
+     * are fetched since some time.
+     * @param issue The issue
+     * @return Github
+     * @throws IOException If fails
+     */
+    private static Github github(final Issue issue) throws IOException {
+        final JsonArrayBuilder comments = Json.createArrayBuilder();
+        for (final Comment comment : issue.comments().iterate()) {
+            comments.add(
+                Json.createObjectBuilder().add("id", comment.number())
+            );
+        }
+        return UnderstandsTest.github(issue.repo(), comments.build());
+    }
+
+    /**
+     * Make Github, which returns these comments, when they are fetched
+     * since some time.
+     * @param repo The repo
+     * @param comments JSON of comments
+     * @return Github
+     */
+    private static Github github(final Repo repo, final JsonArray comments) {
+        final Github github = Mockito.mock(Github.class);
+        Mockito.doReturn(repo.github().repos()).when(github).repos();
+        Mockito.doReturn(
+            new FakeRequest().withBody(comments.toString())
+        ).when(github).entry();
+        return github;
+    }
+
     /**
      * Make talk from issue.
      * @param issue The issue
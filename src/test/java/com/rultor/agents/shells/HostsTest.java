@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.shells;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.immutable.Array;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Tests for ${@link Hosts}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class HostsTest {
+
+    /**
+     * Hosts can pick the only host, even if it can't be sampled.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void picksTheOnlyHost() throws Exception {
+        MatcherAssert.assertThat(
+            new Hosts(
+                new Array<String>("b7.example.com"), 1, "john", ""
+            ).pick("yegor256/rultor"),
+            Matchers.equalTo("b7.example.com")
+        );
+    }
+
+    /**
+     * Hosts can skip hosts which are not reachable.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void skipsUnreachableHosts() throws Exception {
+        MatcherAssert.assertThat(
+            new Hosts(
+                new Array<String>("127.0.0.1", "127.0.0.2"),
+                1, "john", ""
+            ).pick("yegor256/rultor"),
+            Matchers.equalTo("127.0.0.1")
+        );
+    }
+
+    /**
+     * Hosts can pick no host when all of them are busy.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void picksNothingWhenAllHostsAreBusy() throws Exception {
+        final String image = "yegor256/busy";
+        for (final String host : new Array<String>("b8.example.com", "b9")) {
+            Hosts.SAMPLES.sampled(host, new Hosts.Sample(0.0d, 1, Tv.TEN));
+            Hosts.SAMPLES.checked(host, image, true);
+        }
+        MatcherAssert.assertThat(
+            new Hosts(
+                new Array<String>("b8.example.com", "b9"), 1, "john", ""
+            ).pick(image),
+            Matchers.isEmptyString()
+        );
+    }
+
+    /**
+     * Hosts.Option can prefer good hosts to busy ones.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void prefersHostsThatAreNotBusy() throws Exception {
+        MatcherAssert.assertThat(
+            new Hosts.Option(
+                "a", new Hosts.Sample(Tv.FIVE, 1, 1), false
+            ).compareTo(
+                new Hosts.Option(
+                    "b", new Hosts.Sample(0.0d, 1, Tv.TEN), true
+                )
+            ),
+            Matchers.lessThan(0)
+        );
+        MatcherAssert.assertThat(
+            new Hosts.Option(
+                "c", new Hosts.Sample(Tv.FIVE, Tv.HUNDRED, 1), true
+            ).compareTo(
+                new Hosts.Option(
+                    "d", new Hosts.Sample(Tv.FIVE, 1, 1), false
+                )
+            ),
+            Matchers.greaterThan(0)
+        );
+    }
+
+    /**
+     * Hosts.Option can prefer hosts with the image, and then idle ones.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void prefersHostsWithImageAndThenIdle() throws Exception {
+        MatcherAssert.assertThat(
+            new Hosts.Option(
+                "a", new Hosts.Sample(Tv.FIVE, 1, 1), true
+            ).compareTo(
+                new Hosts.Option(
+                    "b", new Hosts.Sample(0.0d, 1, 1), false
+                )
+            ),
+            Matchers.lessThan(0)
+        );
+        MatcherAssert.assertThat(
+            new Hosts.Option(
+                "c", new Hosts.Sample(1.0d, 1, 1), true
+            ).compareTo(
+                new Hosts.Option(
+                    "d", new Hosts.Sample(2.0d, 1, 1), true
+                )
+            ),
+            Matchers.lessThan(0)
+        );
+    }
+
+    /**
+     * Hosts.Option can count daemons of all images in one host sample.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void countsDaemonsOfAllImages() throws Exception {
+        final Hosts.Sample sample = new Hosts.Sample(0.0d, 1, Tv.TEN - 1);
+        final Hosts.Option first = new Hosts.Option("a", sample, true);
+        final Hosts.Option other = new Hosts.Option(
+            "b", new Hosts.Sample(Tv.FIVE, 1, 1), false
+        );
+        MatcherAssert.assertThat(
+            first.compareTo(other), Matchers.lessThan(0)
+        );
+        new Hosts.Option("a", sample, false).placed();
+        MatcherAssert.assertThat(
+            first.compareTo(other), Matchers.greaterThan(0)
+        );
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.agents.shells;
+
+import com.jcabi.ssh.SSHD;
+import com.jcabi.ssh.Shell;
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xembly.Directives;
+import org.xembly.Xembler;
+
+/**
+ * Integration tests for ${@link TalkShells}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class TalkShellsITCase {
+
+    /**
+     * Temp directory.
+     * @checkstyle VisibilityModifierCheck (5 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * TalkShells can run a few commands through one session.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void runsCommandsInPooledSession() throws Exception {
+        final SSHD sshd = new SSHD(this.temp.newFolder());
+        final XML xml = new XMLDocument(
+            new Xembler(
+                new Directives().add("talk")
+                    .add("shell").attr("id", "abcdef")
+                    .add("host").set("localhost").up()
+                    .add("port").set(Integer.toString(sshd.port())).up()
+                    .add("login").set(sshd.login()).up()
+                    .add("key").set(sshd.key())
+            ).xmlQuietly()
+        );
+        MatcherAssert.assertThat(
+            new Shell.Plain(new TalkShells(xml).get()).exec("echo first"),
+            Matchers.startsWith("first")
+        );
+        MatcherAssert.assertThat(
+            new Shell.Plain(new TalkShells(xml).get()).exec("echo second"),
+            Matchers.startsWith("second")
+        );
+    }
+
+    /**
+     * TalkShells can run more commands at once than one session allows.
+     * @throws Exception In case of error.
+     */
+    @Test
+    @SuppressWarnings("PMD.DoNotUseThreads")
+    public void runsManyCommandsAtOnce() throws Exception {
+        final SSHD sshd = new SSHD(this.temp.newFolder());
+        final Shell shell = TalkShells.shell(
+            "localhost", sshd.port(), sshd.login(), sshd.key()
+        );
+        final ExecutorService svc = Executors.newFixedThreadPool(
+            Sessions.CHANNELS * 2
+        );
+        final Collection<Future<Integer>> futures =
+            new LinkedList<Future<Integer>>();
+        for (int idx = 0; idx < Sessions.CHANNELS * 2; ++idx) {
+            futures.add(
+                svc.submit(
+                    new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws Exception {
+                            return new Shell.Empty(shell).exec("sleep 1");
+                        }
+                    }
+                )
+            );
+        }
+        try {
+            for (final Future<Integer> future : futures) {
+                MatcherAssert.assertThat(future.get(), Matchers.equalTo(0));
+            }
+        } finally {
+            svc.shutdownNow();
+        }
+    }
+
+}
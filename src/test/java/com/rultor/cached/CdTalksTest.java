@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.cached;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.xembly.Directives;
+
+/**
+ * Tests for {@link CdTalks}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class CdTalksTest {
+
+    /**
+     * CdTalks can cache XML and evict it on modification.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void evictsModifiedTalk() throws Exception {
+        final Talks origin = new Talks.InDir();
+        origin.create("test/test", "first");
+        origin.create("test/test", "second");
+        final Memory memory = new Memory();
+        final Talks talks = new CdTalks(origin, memory);
+        final Talk first = talks.get("first");
+        final Talk second = talks.get("second");
+        first.read();
+        second.read();
+        origin.get("second").modify(
+            new Directives().xpath("/talk").attr("later", "true")
+        );
+        first.modify(
+            new Directives().xpath("/talk").attr("later", "true")
+        );
+        MatcherAssert.assertThat(
+            first.read(),
+            XhtmlMatchers.hasXPath("/talk[@later='true']")
+        );
+        MatcherAssert.assertThat(
+            second.read(),
+            XhtmlMatchers.hasXPath("/talk[@later='false']")
+        );
+        MatcherAssert.assertThat(
+            memory.stats().get("xml").hitCount(),
+            Matchers.equalTo(1L)
+        );
+    }
+
+    /**
+     * CdTalks can keep recent talks on modification, until toggled.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void keepsRecentTalksUntilToggled() throws Exception {
+        final Talks origin = new Talks.InDir();
+        origin.create("test/recent", "third");
+        final Memory memory = new Memory();
+        final Talks talks = new CdTalks(origin, memory);
+        talks.recent();
+        final Talk talk = talks.get("third");
+        talk.modify(
+            new Directives().xpath("/talk").attr("later", "true")
+        );
+        talks.recent();
+        MatcherAssert.assertThat(
+            memory.stats().get("recent").hitCount(),
+            Matchers.equalTo(1L)
+        );
+        talk.active(false);
+        talks.recent();
+        MatcherAssert.assertThat(
+            memory.stats().get("recent").missCount(),
+            Matchers.equalTo(2L)
+        );
+    }
+
+}
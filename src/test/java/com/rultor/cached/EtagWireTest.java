@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.cached;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import com.jcabi.http.response.DefaultResponse;
+import com.jcabi.immutable.Array;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.Matcher;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link EtagWire}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ * @checkstyle MultipleStringLiteralsCheck (500 lines)
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+public final class EtagWireTest {
+
+    /**
+     * Name of the conditional header.
+     */
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    /**
+     * EtagWire can return cached response on 304.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void returnsCachedResponseWhenNotModified() throws Exception {
+        final Request req = Mockito.mock(Request.class);
+        final Wire origin = EtagWireTest.origin(
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_OK, "\"abc\"", "{\"a\":1}"
+            ),
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_NOT_MODIFIED, "", ""
+            )
+        );
+        final Wire wire = new EtagWire(origin);
+        final String home = EtagWireTest.home();
+        EtagWireTest.send(wire, req, home, Request.GET);
+        final Response response = EtagWireTest.send(
+            wire, req, home, Request.GET
+        );
+        MatcherAssert.assertThat(
+            response.status(),
+            Matchers.equalTo(HttpURLConnection.HTTP_OK)
+        );
+        MatcherAssert.assertThat(
+            response.body(),
+            Matchers.equalTo("{\"a\":1}")
+        );
+        final List<Collection<Map.Entry<String, String>>> sent =
+            EtagWireTest.headers(origin, 2);
+        MatcherAssert.assertThat(
+            sent.get(0),
+            Matchers.not(EtagWireTest.condition("\"abc\""))
+        );
+        MatcherAssert.assertThat(
+            sent.get(1),
+            EtagWireTest.condition("\"abc\"")
+        );
+    }
+
+    /**
+     * EtagWire can pass a modified response through and cache it instead.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void passesModifiedResponseThrough() throws Exception {
+        final Request req = Mockito.mock(Request.class);
+        final Wire origin = EtagWireTest.origin(
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_OK, "\"old\"", "old"
+            ),
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_OK, "\"new\"", "new"
+            ),
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_NOT_MODIFIED, "", ""
+            )
+        );
+        final Wire wire = new EtagWire(origin);
+        final String home = EtagWireTest.home();
+        EtagWireTest.send(wire, req, home, Request.GET);
+        MatcherAssert.assertThat(
+            EtagWireTest.send(wire, req, home, Request.GET).body(),
+            Matchers.equalTo("new")
+        );
+        MatcherAssert.assertThat(
+            EtagWireTest.send(wire, req, home, Request.GET).body(),
+            Matchers.equalTo("new")
+        );
+        MatcherAssert.assertThat(
+            EtagWireTest.headers(origin, Tv.THREE).get(2),
+            EtagWireTest.condition("\"new\"")
+        );
+    }
+
+    /**
+     * EtagWire can send requests other than GET as they are, even
+     * when the URI is cached.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void bypassesRequestsOtherThanGet() throws Exception {
+        final Request req = Mockito.mock(Request.class);
+        final Wire origin = EtagWireTest.origin(
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_OK, "\"post\"", "posted"
+            )
+        );
+        final Wire wire = new EtagWire(origin);
+        final String home = EtagWireTest.home();
+        EtagWireTest.send(wire, req, home, Request.GET);
+        EtagWireTest.send(wire, req, home, Request.POST);
+        EtagWireTest.send(wire, req, home, Request.POST);
+        final List<Collection<Map.Entry<String, String>>> sent =
+            EtagWireTest.headers(origin, Tv.THREE);
+        MatcherAssert.assertThat(
+            sent.get(1),
+            Matchers.not(EtagWireTest.condition("\"post\""))
+        );
+        MatcherAssert.assertThat(
+            sent.get(2),
+            Matchers.not(EtagWireTest.condition("\"post\""))
+        );
+    }
+
+    /**
+     * EtagWire can forget the cached response when the origin fails.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void forgetsResponseOnFailure() throws Exception {
+        final Request req = Mockito.mock(Request.class);
+        final Wire origin = EtagWireTest.origin(
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_OK, "\"gone\"", "here"
+            ),
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_NOT_FOUND, "", ""
+            ),
+            EtagWireTest.response(
+                req, HttpURLConnection.HTTP_NOT_FOUND, "", ""
+            )
+        );
+        final Wire wire = new EtagWire(origin);
+        final String home = EtagWireTest.home();
+        EtagWireTest.send(wire, req, home, Request.GET);
+        MatcherAssert.assertThat(
+            EtagWireTest.send(wire, req, home, Request.GET).status(),
+            Matchers.equalTo(HttpURLConnection.HTTP_NOT_FOUND)
+        );
+        EtagWireTest.send(wire, req, home, Request.GET);
+        final List<Collection<Map.Entry<String, String>>> sent =
+            EtagWireTest.headers(origin, Tv.THREE);
+        MatcherAssert.assertThat(
+            sent.get(1),
+            EtagWireTest.condition("\"gone\"")
+        );
+        MatcherAssert.assertThat(
+            sent.get(2),
+            Matchers.not(EtagWireTest.condition("\"gone\""))
+        );
+    }
+
+    /**
+     * Make a unique URI, since the cache is shared by all wires.
+     * @return URI
+     */
+    private static String home() {
+        return String.format(
+            "http://localhost/repos/a/%s", UUID.randomUUID()
+        );
+    }
+
+    /**
+     * Make a wire that replies with these responses, one by one, and
+     * then with the last one.
+     * @param responses Responses
+     * @return Wire
+     * @throws IOException If fails
+     */
+    @SuppressWarnings("unchecked")
+    private static Wire origin(final Response... responses)
+        throws IOException {
+        final Wire origin = Mockito.mock(Wire.class);
+        Mockito.when(
+            origin.send(
+                Mockito.any(Request.class), Mockito.anyString(),
+                Mockito.anyString(), Mockito.anyCollection(),
+                Mockito.any(InputStream.class)
+            )
+        ).thenReturn(
+            responses[0],
+            Arrays.copyOfRange(responses, 1, responses.length)
+        );
+        return origin;
+    }
+
+    /**
+     * Make a response.
+     * @param req Request
+     * @param status HTTP status
+     * @param etag ETag or empty if none
+     * @param body Body
+     * @return Response
+     * @throws IOException If fails
+     */
+    private static Response response(final Request req, final int status,
+        final String etag, final String body) throws IOException {
+        final Array<Map.Entry<String, String>> headers;
+        if (etag.isEmpty()) {
+            headers = new Array<Map.Entry<String, String>>();
+        } else {
+            headers = new Array<Map.Entry<String, String>>(
+                new AbstractMap.SimpleImmutableEntry<String, String>(
+                    "ETag", etag
+                )
+            );
+        }
+        return new DefaultResponse(
+            req, status, "", headers, body.getBytes(CharEncoding.UTF_8)
+        );
+    }
+
+    /**
+     * Send a request through the wire.
+     * @param wire Wire
+     * @param req Request
+     * @param home URI
+     * @param method HTTP method
+     * @return Response
+     * @throws IOException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static Response send(final Wire wire, final Request req,
+        final String home, final String method) throws IOException {
+        return wire.send(
+            req, home, method,
+            Collections.<Map.Entry<String, String>>emptyList(),
+            new NullInputStream(0L)
+        );
+    }
+
+    /**
+     * Headers the origin wire received.
+     * @param origin Origin wire
+     * @param total How many requests it must have received
+     * @return Headers of every request
+     * @throws IOException If fails
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static List<Collection<Map.Entry<String, String>>> headers(
+        final Wire origin, final int total) throws IOException {
+        final ArgumentCaptor<Collection> captor =
+            ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(origin, Mockito.times(total)).send(
+            Mockito.any(Request.class), Mockito.anyString(),
+            Mockito.anyString(), captor.capture(),
+            Mockito.any(InputStream.class)
+        );
+        return (List<Collection<Map.Entry<String, String>>>) (List<?>)
+            captor.getAllValues();
+    }
+
+    /**
+     * Matcher of headers with the conditional header.
+     * @param etag ETag expected in it
+     * @return Matcher
+     */
+    private static Matcher<Iterable<? super Map.Entry<String, String>>>
+        condition(final String etag) {
+        return Matchers.<Map.Entry<String, String>>hasItem(
+            new AbstractMap.SimpleImmutableEntry<String, String>(
+                EtagWireTest.IF_NONE_MATCH, etag
+            )
+        );
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.cached;
+
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import com.jcabi.http.response.DefaultResponse;
+import com.jcabi.immutable.Array;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.input.NullInputStream;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link QuotaWire}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class QuotaWireTest {
+
+    /**
+     * Forget the quota, which other tests could exhaust.
+     */
+    @After
+    public void forget() {
+        QuotaWire.forget();
+    }
+
+    /**
+     * QuotaWire can refuse requests when the quota is exhausted.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = IOException.class)
+    @SuppressWarnings("unchecked")
+    public void refusesRequestsWhenQuotaIsExhausted() throws Exception {
+        final Request req = Mockito.mock(Request.class);
+        final Wire origin = Mockito.mock(Wire.class);
+        Mockito.doReturn(
+            new DefaultResponse(
+                req, HttpURLConnection.HTTP_OK, "OK",
+                new Array<Map.Entry<String, String>>(
+                    new AbstractMap.SimpleImmutableEntry<String, String>(
+                        "X-RateLimit-Remaining", "1"
+                    ),
+                    new AbstractMap.SimpleImmutableEntry<String, String>(
+                        "X-RateLimit-Reset",
+                        Long.toString(
+                            TimeUnit.MILLISECONDS.toSeconds(
+                                System.currentTimeMillis()
+                            ) + TimeUnit.HOURS.toSeconds(1L)
+                        )
+                    )
+                ),
+                new byte[0]
+            )
+        ).when(origin).send(
+            Mockito.any(Request.class), Mockito.anyString(),
+            Mockito.anyString(), Mockito.anyCollection(),
+            Mockito.any(InputStream.class)
+        );
+        final Wire wire = new QuotaWire(origin);
+        final String home = "http://localhost/rate_limit";
+        wire.send(
+            req, home, Request.GET,
+            Collections.<Map.Entry<String, String>>emptyList(),
+            new NullInputStream(0L)
+        );
+        wire.send(
+            req, home, Request.GET,
+            Collections.<Map.Entry<String, String>>emptyList(),
+            new NullInputStream(0L)
+        );
+    }
+
+    /**
+     * QuotaWire can count only requests Github charges for.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void countsOnlyChargedRequests() throws Exception {
+        final Request req = Mockito.mock(Request.class);
+        final Wire origin = Mockito.mock(Wire.class);
+        Mockito.doReturn(
+            QuotaWireTest.response(req, HttpURLConnection.HTTP_NOT_MODIFIED)
+        ).doReturn(
+            QuotaWireTest.response(req, HttpURLConnection.HTTP_OK)
+        ).when(origin).send(
+            Mockito.any(Request.class), Mockito.anyString(),
+            Mockito.anyString(), Mockito.anyCollection(),
+            Mockito.any(InputStream.class)
+        );
+        final Wire wire = new QuotaWire(origin);
+        final long mine = QuotaWire.mine();
+        for (int idx = 0; idx < 2; ++idx) {
+            wire.send(
+                req, "http://localhost/user", Request.GET,
+                Collections.<Map.Entry<String, String>>emptyList(),
+                new NullInputStream(0L)
+            );
+        }
+        MatcherAssert.assertThat(
+            QuotaWire.mine() - mine,
+            Matchers.equalTo(1L)
+        );
+    }
+
+    /**
+     * Make a response of Github.
+     * @param req Request
+     * @param status HTTP status
+     * @return Response
+     */
+    private static Response response(final Request req, final int status) {
+        return new DefaultResponse(
+            req, status, "",
+            new Array<Map.Entry<String, String>>(
+                new AbstractMap.SimpleImmutableEntry<String, String>(
+                    "X-RateLimit-Remaining", "4000"
+                ),
+                new AbstractMap.SimpleImmutableEntry<String, String>(
+                    "X-RateLimit-Reset",
+                    Long.toString(
+                        TimeUnit.MILLISECONDS.toSeconds(
+                            System.currentTimeMillis()
+                        ) + TimeUnit.HOURS.toSeconds(1L)
+                    )
+                )
+            ),
+            new byte[0]
+        );
+    }
+
+}
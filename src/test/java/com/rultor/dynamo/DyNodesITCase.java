@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.dynamo;
+
+import co.stateful.mock.MkSttc;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Credentials;
+import com.jcabi.dynamo.Region;
+import com.jcabi.dynamo.retry.ReRegion;
+import com.jcabi.manifests.Manifests;
+import com.rultor.spi.Nodes;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Integration case for {@link DyNodes}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class DyNodesITCase {
+
+    /**
+     * DyNodes can forget a node that left.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void forgetsNodesThatLeft() throws Exception {
+        final Nodes nodes = new DyNodes(this.dynamo());
+        final String node = "node-that-leaves";
+        nodes.beat(node);
+        MatcherAssert.assertThat(nodes.alive(), Matchers.hasItem(node));
+        nodes.leave(node);
+        MatcherAssert.assertThat(
+            nodes.alive(), Matchers.not(Matchers.hasItem(node))
+        );
+    }
+
+    /**
+     * DyNodes can delete items of dead nodes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void prunesDeadNodes() throws Exception {
+        final Region region = this.dynamo();
+        final String node = "node-that-died";
+        region.table(DyNodes.TBL).put(
+            new Attributes()
+                .with(DyNodes.HASH, node)
+                .with(DyNodes.ATTR_ALIVE, 1L)
+        );
+        final Nodes nodes = new DyNodes(region);
+        MatcherAssert.assertThat(
+            nodes.alive(), Matchers.not(Matchers.hasItem(node))
+        );
+        MatcherAssert.assertThat(
+            region.table(DyNodes.TBL).frame().where(DyNodes.HASH, node),
+            Matchers.emptyIterable()
+        );
+    }
+
+    /**
+     * DyNodes can let only one node claim a talk.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void claimsTalkForOneNode() throws Exception {
+        final Region region = this.dynamo();
+        final String talk = "yegor256/rultor#1001";
+        new DyTalks(region, new MkSttc().counters().get(""))
+            .create("a/claimed", talk);
+        final Nodes nodes = new DyNodes(region);
+        MatcherAssert.assertThat(
+            nodes.claim("first", talk), Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            nodes.claim("second", talk), Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            nodes.claim("first", talk), Matchers.is(true)
+        );
+    }
+
+    /**
+     * DynamoDB region for tests.
+     * @return Region
+     */
+    private Region dynamo() {
+        final String key = Manifests.read("Rultor-DynamoKey");
+        Assume.assumeNotNull(key);
+        final String port = System.getProperty("dynamo.port");
+        Assume.assumeNotNull(port);
+        return new Region.Prefixed(
+            new ReRegion(
+                new Region.Simple(
+                    new Credentials.Direct(
+                        new Credentials.Simple(
+                            key,
+                            Manifests.read("Rultor-DynamoSecret")
+                        ),
+                        Integer.parseInt(port)
+                    )
+                )
+            ),
+            "rt-"
+        );
+    }
+
+}
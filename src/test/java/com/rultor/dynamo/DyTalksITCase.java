@@ -185,6 +185,26 @@ public final class DyTalksITCase {
         );
     }
 
+    /**
+     * DyTalks can reject directives made for another version.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = DyTalk.ConflictException.class)
+    public void rejectsModificationsOfOldVersion() throws Exception {
+        final Talks talks = new DyTalks(
+            this.dynamo(), new MkSttc().counters().get("")
+        );
+        final String name = "yegor256/rultor#991";
+        talks.create("a/fv", name);
+        final Talk talk = talks.get(name);
+        final String version = talk.read().xpath("/talk/@version").get(0);
+        talk.modify(new Directives().xpath("/talk").attr("public", "false"));
+        talk.modify(
+            new Directives().xpath("/talk").attr("public", "true")
+                .attr("version", version)
+        );
+    }
+
     /**
      * DynamoDB region for tests.
      * @return Region
@@ -30,18 +30,25 @@
 package com.rultor.profiles;
 
 import com.google.common.base.Joiner;
+import com.jcabi.github.Content;
+import com.jcabi.github.Contents;
 import com.jcabi.github.Coordinates;
+import com.jcabi.github.Git;
 import com.jcabi.github.Github;
+import com.jcabi.github.Reference;
+import com.jcabi.github.References;
 import com.jcabi.github.Repo;
 import com.jcabi.github.mock.MkGithub;
 import com.jcabi.matchers.XhtmlMatchers;
 import com.rultor.spi.Profile;
 import java.io.IOException;
+import java.util.UUID;
 import javax.json.Json;
 import org.apache.commons.codec.binary.Base64;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 /**
  * Tests for ${@link GithubProfile}.
@@ -248,6 +255,124 @@ public final class GithubProfileTest {
         profile.assets();
     }
 
+    /**
+     * GithubProfile can read the configuration once per head of the branch.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void readsConfigOncePerHead() throws Exception {
+        final Repo repo = GithubProfileTest.mocked("merge:\n  script: a");
+        final Reference ref = Mockito.mock(Reference.class);
+        Mockito.doReturn(
+            Json.createObjectBuilder().add(
+                "object", Json.createObjectBuilder().add("sha", "a1")
+            ).build()
+        ).when(ref).json();
+        Mockito.doReturn(ref)
+            .when(repo.git().references()).get("refs/heads/master");
+        final Profile profile = new GithubProfile(repo);
+        MatcherAssert.assertThat(
+            profile.read(),
+            Matchers.sameInstance(profile.read())
+        );
+        Mockito.verify(repo.contents(), Mockito.times(1)).get(".rultor.yml");
+        Mockito.verify(ref, Mockito.times(1)).json();
+    }
+
+    /**
+     * GithubProfile can reuse the configuration when its blob is the same.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void reusesConfigOfSameBlob() throws Exception {
+        final Repo repo = GithubProfileTest.mocked("merge:\n  script: b");
+        final GithubProfile profile = new GithubProfile(repo);
+        MatcherAssert.assertThat(
+            profile.config("b1"),
+            Matchers.sameInstance(profile.config("b2"))
+        );
+        Mockito.verify(repo.contents(), Mockito.times(2)).get(".rultor.yml");
+    }
+
+    /**
+     * GithubProfile can read the configuration again when its blob changes.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void rereadsConfigWhenBlobChanges() throws Exception {
+        final Repo repo = GithubProfileTest.mocked("merge:\n  script: c");
+        final GithubProfile profile = new GithubProfile(repo);
+        profile.config("c1").xml();
+        GithubProfileTest.file(repo, "merge:\n  script: d", "d");
+        MatcherAssert.assertThat(
+            profile.config("c2").xml(),
+            XhtmlMatchers.hasXPath(
+                "/p/entry[@key='merge']/entry[@key='script' and .='d']"
+            )
+        );
+    }
+
+    /**
+     * GithubProfile can remember that the configuration is broken.
+     * @throws Exception In case of error.
+     */
+    @Test(expected = Profile.ConfigException.class)
+    public void remembersBrokenConfig() throws Exception {
+        final Repo repo = GithubProfileTest.mocked("&*(fds:[[\nfd\n");
+        final GithubProfile profile = new GithubProfile(repo);
+        MatcherAssert.assertThat(
+            profile.config("e1"),
+            Matchers.sameInstance(profile.config("e2"))
+        );
+        profile.config("e3").xml();
+    }
+
+    /**
+     * Make a mocked repo with YAML inside.
+     * @param yaml YAML config
+     * @return Repo
+     * @throws IOException If fails
+     */
+    private static Repo mocked(final String yaml) throws IOException {
+        final Repo repo = Mockito.mock(Repo.class);
+        Mockito.doReturn(
+            new Coordinates.Simple("jeff", UUID.randomUUID().toString())
+        ).when(repo).coordinates();
+        final Contents contents = Mockito.mock(Contents.class);
+        Mockito.doReturn(true).when(contents).exists(
+            Mockito.eq(".rultor.yml"), Mockito.anyString()
+        );
+        Mockito.doReturn(contents).when(repo).contents();
+        final Reference absent = Mockito.mock(Reference.class);
+        Mockito.doThrow(new AssertionError("404")).when(absent).json();
+        final References refs = Mockito.mock(References.class);
+        Mockito.doReturn(absent).when(refs).get(Mockito.anyString());
+        final Git git = Mockito.mock(Git.class);
+        Mockito.doReturn(refs).when(git).references();
+        Mockito.doReturn(git).when(repo).git();
+        GithubProfileTest.file(repo, yaml, "blob");
+        return repo;
+    }
+
+    /**
+     * Put YAML into the mocked repo.
+     * @param repo Mocked repo
+     * @param yaml YAML config
+     * @param sha SHA of its blob
+     * @throws IOException If fails
+     */
+    private static void file(final Repo repo, final String yaml,
+        final String sha) throws IOException {
+        final Content content = Mockito.mock(Content.class);
+        Mockito.doReturn(
+            Json.createObjectBuilder()
+                .add("sha", sha)
+                .add("content", Base64.encodeBase64String(yaml.getBytes()))
+                .build()
+        ).when(content).json();
+        Mockito.doReturn(content).when(repo.contents()).get(".rultor.yml");
+    }
+
     /**
      * Make a repo with YAML inside.
      * @param yaml YAML config
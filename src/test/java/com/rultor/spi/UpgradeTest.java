@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.spi;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Upgrade}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class UpgradeTest {
+
+    /**
+     * Upgrade can apply missing stages and mark the version.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void upgradesOldTalk() throws Exception {
+        final XML xml = Talk.UPGRADE.transform(
+            new XMLDocument("<talk name='a' number='1'/>")
+        );
+        MatcherAssert.assertThat(
+            xml,
+            XhtmlMatchers.hasXPath(
+                String.format(
+                    "/talk[@later='false' and @public='true' and @schema=%d]",
+                    Talk.UPGRADE.current()
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            Talk.UPGRADE.isCurrent(xml),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * Upgrade can skip current talks.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void skipsCurrentTalk() throws Exception {
+        final XML xml = new XMLDocument(
+            String.format(
+                "<talk name='b' number='2' later='true' schema='%d'/>",
+                Talk.UPGRADE.current()
+            )
+        );
+        MatcherAssert.assertThat(
+            Talk.UPGRADE.transform(xml),
+            Matchers.sameInstance(xml)
+        );
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.cached.QuotaWire;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Budget}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class BudgetTest {
+
+    /**
+     * Budget can spread the quota across ticks.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void spreadsQuotaAcrossTicks() throws Exception {
+        final Budget budget = new Budget(TimeUnit.MINUTES.toMillis(1L));
+        budget.spent(2L, 1);
+        MatcherAssert.assertThat(
+            budget.talks(-1L, 0L),
+            Matchers.equalTo(Integer.MAX_VALUE)
+        );
+        MatcherAssert.assertThat(
+            budget.talks(QuotaWire.RESERVE, TimeUnit.MINUTES.toMillis(1L)),
+            Matchers.equalTo(0)
+        );
+        MatcherAssert.assertThat(
+            budget.talks(
+                QuotaWire.RESERVE + 1L, TimeUnit.HOURS.toMillis(1L)
+            ),
+            Matchers.equalTo(0)
+        );
+        MatcherAssert.assertThat(
+            budget.talks(
+                QuotaWire.RESERVE + (long) Tv.HUNDRED,
+                TimeUnit.MINUTES.toMillis((long) Tv.TEN)
+            ),
+            Matchers.equalTo(1)
+        );
+    }
+
+}
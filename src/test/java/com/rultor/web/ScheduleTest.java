@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.xml.XMLDocument;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Schedule}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class ScheduleTest {
+
+    /**
+     * Schedule can keep idle talks asleep until they are touched.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void wakesIdleTalksOnlyWhenTouched() throws Exception {
+        final Schedule schedule = new Schedule();
+        final String name = "idle";
+        MatcherAssert.assertThat(schedule.due(name), Matchers.is(true));
+        schedule.start(name);
+        schedule.done(
+            name, new XMLDocument("<talk later='false' name='a' number='1'/>")
+        );
+        MatcherAssert.assertThat(schedule.due(name), Matchers.is(false));
+        schedule.touch(name);
+        MatcherAssert.assertThat(schedule.due(name), Matchers.is(true));
+    }
+
+    /**
+     * Schedule can poll talks with running daemons.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void pollsRunningDaemons() throws Exception {
+        final Schedule schedule = new Schedule(0L, Long.MAX_VALUE / 2L);
+        final String name = "running";
+        schedule.done(
+            name,
+            new XMLDocument(
+                // @checkstyle LineLength (1 line)
+                "<talk later='false'><daemon id='a'><started>2015-01-01T00:00:00Z</started></daemon></talk>"
+            )
+        );
+        MatcherAssert.assertThat(schedule.due(name), Matchers.is(true));
+        MatcherAssert.assertThat(schedule.urgent(name), Matchers.is(true));
+    }
+
+    /**
+     * Schedule can keep talks with pending requests due.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void keepsBusyTalksDue() throws Exception {
+        final Schedule schedule = new Schedule();
+        final String name = "busy";
+        schedule.done(
+            name,
+            new XMLDocument("<talk later='true' name='b' number='2'/>")
+        );
+        MatcherAssert.assertThat(schedule.due(name), Matchers.is(true));
+    }
+
+    /**
+     * Schedule can remember a ping until it's asked about it.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void remembersPingOnce() throws Exception {
+        final Schedule schedule = new Schedule();
+        final String name = "pinged";
+        schedule.ping(name);
+        MatcherAssert.assertThat(schedule.urgent(name), Matchers.is(true));
+        MatcherAssert.assertThat(schedule.pinged(name), Matchers.is(true));
+        MatcherAssert.assertThat(schedule.pinged(name), Matchers.is(false));
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Nodes;
+import java.util.Arrays;
+import java.util.Collection;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Shard}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class ShardTest {
+
+    /**
+     * Shard can own all talks when alone.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void ownsEverythingWhenAlone() throws Exception {
+        final Shard shard = new Shard("solo", new Nodes.Solo("solo").alive());
+        MatcherAssert.assertThat(shard.leads(), Matchers.is(true));
+        for (int idx = 0; idx < Tv.HUNDRED; ++idx) {
+            MatcherAssert.assertThat(
+                shard.owns(String.format("talk-%d", idx)),
+                Matchers.is(true)
+            );
+        }
+    }
+
+    /**
+     * Shard can give every talk to exactly one node.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void splitsTalksAmongNodes() throws Exception {
+        final Collection<String> nodes = Arrays.asList("a", "b", "c");
+        final Shard first = new Shard("a", nodes);
+        final Shard second = new Shard("b", nodes);
+        final Shard third = new Shard("c", nodes);
+        int owned = 0;
+        for (int idx = 0; idx < Tv.THOUSAND; ++idx) {
+            final String talk = String.format("talk-%d", idx);
+            int owners = 0;
+            for (final Shard shard : Arrays.asList(first, second, third)) {
+                if (shard.owns(talk)) {
+                    ++owners;
+                }
+            }
+            MatcherAssert.assertThat(owners, Matchers.equalTo(1));
+            if (first.owns(talk)) {
+                ++owned;
+            }
+        }
+        MatcherAssert.assertThat(owned, Matchers.greaterThan(0));
+        MatcherAssert.assertThat(owned, Matchers.lessThan(Tv.THOUSAND));
+        MatcherAssert.assertThat(first.leads(), Matchers.is(true));
+        MatcherAssert.assertThat(second.leads(), Matchers.is(false));
+    }
+
+    /**
+     * Shard can keep its talks when another node joins.
+     * @throws Exception In case of error.
+     */
+    @Test
+    public void keepsTalksWhenNodeJoins() throws Exception {
+        final Shard before = new Shard("a", Arrays.asList("a", "b"));
+        final Shard after = new Shard("a", Arrays.asList("a", "b", "c"));
+        for (int idx = 0; idx < Tv.HUNDRED; ++idx) {
+            final String talk = String.format("talk-%d", idx);
+            if (after.owns(talk)) {
+                MatcherAssert.assertThat(before.owns(talk), Matchers.is(true));
+            }
+        }
+    }
+
+}
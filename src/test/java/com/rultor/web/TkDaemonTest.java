@@ -34,6 +34,7 @@ import com.rultor.spi.Talk;
 import com.rultor.spi.Talks;
 import java.io.IOException;
 import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.takes.Request;
 import org.takes.Take;
@@ -76,4 +77,64 @@ public final class TkDaemonTest {
         );
     }
 
+    /**
+     * TkDaemon can return raw log from the given offset.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void returnsRawLogFromOffset() throws Exception {
+        final Talks talks = new Talks.InDir();
+        final Takes takes = new TsAuth(
+            new Takes() {
+                @Override
+                public Take route(final Request request) throws IOException {
+                    return new TkDaemon(request, talks, 1L, "abcdef");
+                }
+            },
+            new PsFake(true)
+        );
+        talks.create("test", Talk.TEST_NAME);
+        final RsPrint response = new RsPrint(
+            takes.route(new RqFake("GET", "/t/1-abcdef?offset=100")).act()
+        );
+        MatcherAssert.assertThat(
+            response.printHead(),
+            Matchers.containsString("text/plain")
+        );
+        MatcherAssert.assertThat(
+            response.printBody(),
+            Matchers.isEmptyString()
+        );
+    }
+
+    /**
+     * TkDaemon can read from the beginning when offset is broken.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsFromBeginningWhenOffsetIsBroken() throws Exception {
+        final Talks talks = new Talks.InDir();
+        final Takes takes = new TsAuth(
+            new Takes() {
+                @Override
+                public Take route(final Request request) throws IOException {
+                    return new TkDaemon(request, talks, 1L, "abcdef");
+                }
+            },
+            new PsFake(true)
+        );
+        talks.create("test", Talk.TEST_NAME);
+        MatcherAssert.assertThat(
+            new RsPrint(
+                takes.route(
+                    new RqFake("GET", "/t/1-abcdef?offset=abc")
+                ).act()
+            ).printHead(),
+            Matchers.allOf(
+                Matchers.startsWith("HTTP/1.1 200"),
+                Matchers.containsString("text/plain")
+            )
+        );
+    }
+
 }
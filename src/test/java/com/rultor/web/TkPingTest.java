@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.rultor.agents.daemons.Ping;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link TkPing}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class TkPingTest {
+
+    /**
+     * TkPing can reject a ping with a wrong token.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void rejectsWrongToken() throws Exception {
+        final Talks talks = new Talks.InDir();
+        talks.create("test", Talk.TEST_NAME);
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkPing(
+                    new RqFake("POST", "/ping/1-abcdef?t=0123"),
+                    talks, new Schedule(), 1L, "abcdef"
+                ).act()
+            ).printHead(),
+            Matchers.startsWith("HTTP/1.1 403")
+        );
+    }
+
+    /**
+     * TkPing can accept a ping with a valid token.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void acceptsValidToken() throws Exception {
+        final Talks talks = new Talks.InDir();
+        talks.create("test", Talk.TEST_NAME);
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkPing(
+                    new RqFake(
+                        "POST",
+                        String.format(
+                            "%s?%s",
+                            new Ping(1L, "abcdef").uri().getRawPath(),
+                            new Ping(1L, "abcdef").uri().getRawQuery()
+                        )
+                    ),
+                    talks, new Schedule(), 1L, "abcdef"
+                ).act()
+            ).printHead(),
+            Matchers.startsWith("HTTP/1.1 204")
+        );
+    }
+
+    /**
+     * TkPing can mark the talk as pinged, without ending its daemon.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void marksTalkAsPinged() throws Exception {
+        final Talks talks = new Talks.InDir();
+        talks.create("test", Talk.TEST_NAME);
+        final Talk talk = talks.get(Talk.TEST_NAME);
+        talk.modify(
+            new Directives().xpath("/talk")
+                .add("daemon").attr("id", "fedcba")
+                .add("script").set("ls").up()
+                .add("title").set("ls").up()
+                .add("dir").set("/tmp/x").up()
+        );
+        final Schedule schedule = new Schedule();
+        new TkPing(
+            new RqFake(
+                "POST",
+                String.format(
+                    "%s?%s",
+                    new Ping(1L, "fedcba").uri().getRawPath(),
+                    new Ping(1L, "fedcba").uri().getRawQuery()
+                )
+            ),
+            talks, schedule, 1L, "fedcba"
+        ).act();
+        MatcherAssert.assertThat(
+            schedule.urgent(Talk.TEST_NAME), Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            schedule.pinged(Talk.TEST_NAME), Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            talk.read(),
+            XhtmlMatchers.hasXPath("/talk/daemon[not(ended)]")
+        );
+    }
+
+}
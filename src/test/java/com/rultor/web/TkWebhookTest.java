@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2009-2015, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.github.Issue;
+import com.jcabi.github.Repo;
+import com.jcabi.github.mock.MkGithub;
+import com.jcabi.manifests.Manifests;
+import com.rultor.spi.Talk;
+import com.rultor.spi.Talks;
+import java.util.Arrays;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.json.Json;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+
+/**
+ * Test case for {@link TkWebhook}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+public final class TkWebhookTest {
+
+    /**
+     * TkWebhook can reject an event with a wrong signature.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void rejectsWrongSignature() throws Exception {
+        final Talks talks = new Talks.InDir();
+        final Schedule schedule = new Schedule();
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkWebhook(
+                    new RqFake(
+                        Arrays.asList(
+                            "POST /hook/github HTTP/1.1",
+                            "Host: www.rultor.com",
+                            "X-GitHub-Event: issue_comment",
+                            "X-Hub-Signature: sha1=0123456789abcdef"
+                        ),
+                        "{\"action\":\"created\"}"
+                    ),
+                    talks, new Schedule(), new MkGithub()
+                ).act()
+            ).printHead(),
+            Matchers.startsWith("HTTP/1.1 403")
+        );
+        MatcherAssert.assertThat(
+            talks.active(),
+            Matchers.emptyIterable()
+        );
+    }
+
+    /**
+     * TkWebhook can activate a talk when a signed comment mentions Rultor.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void activatesTalkOnSignedComment() throws Exception {
+        final MkGithub github = new MkGithub();
+        final Repo repo = github.randomRepo();
+        final Issue issue = repo.issues().create("", "");
+        final String body = Json.createObjectBuilder()
+            .add("action", "created")
+            .add(
+                "comment",
+                Json.createObjectBuilder().add(
+                    "body",
+                    String.format("@%s hello", github.users().self().login())
+                )
+            )
+            .add(
+                "repository",
+                Json.createObjectBuilder()
+                    .add("full_name", repo.coordinates().toString())
+            )
+            .add(
+                "issue",
+                Json.createObjectBuilder().add("number", issue.number())
+            )
+            .build().toString();
+        final Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(
+            new SecretKeySpec(
+                Manifests.read("Rultor-WebhookSecret")
+                    .getBytes(CharEncoding.UTF_8),
+                "HmacSHA1"
+            )
+        );
+        final Talks talks = new Talks.InDir();
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkWebhook(
+                    new RqFake(
+                        Arrays.asList(
+                            "POST /hook/github HTTP/1.1",
+                            "Host: www.rultor.com",
+                            "X-GitHub-Event: issue_comment",
+                            String.format(
+                                "X-Hub-Signature: sha1=%s",
+                                Hex.encodeHexString(
+                                    mac.doFinal(
+                                        body.getBytes(CharEncoding.UTF_8)
+                                    )
+                                )
+                            )
+                        ),
+                        body
+                    ),
+                    talks, schedule, github
+                ).act()
+            ).printHead(),
+            Matchers.startsWith("HTTP/1.1 204")
+        );
+        MatcherAssert.assertThat(
+            talks.active(),
+            Matchers.<Talk>iterableWithSize(1)
+        );
+        MatcherAssert.assertThat(
+            schedule.urgent(talks.active().iterator().next().name()),
+            Matchers.is(true)
+        );
+    }
+
+}